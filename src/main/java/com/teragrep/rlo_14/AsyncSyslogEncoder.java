@@ -0,0 +1,478 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves the encoding of messages off the application threads through a bounded ring of preallocated, reused
+ * {@link SyslogMessage} slots.
+ *
+ * A producer claims a slot, fills in the message and publishes it:
+ * <pre>{@code
+ * long sequence = encoder.claim(Severity.INFORMATIONAL);
+ * if (sequence >= 0) {
+ *     try {
+ *         encoder.slot(sequence).withFacility(Facility.USER).withMsg("a syslog message");
+ *     }
+ *     finally {
+ *         encoder.publish(sequence);
+ *     }
+ * }
+ * }</pre>
+ * Every claimed slot must be published, the consumers wait for it before moving past it.
+ *
+ * Claiming and publishing take no locks, any number of producer threads can share the encoder. The consumer threads
+ * take runs of published slots, encode each run into their own {@link SyslogBatchEncoder} and hand the batch to the
+ * {@link SyslogBatchSink}. When the ring is full, {@link OverflowPolicy} decides whether the producer waits or the
+ * message is dropped.
+ */
+public final class AsyncSyslogEncoder implements Closeable {
+    private final SyslogMessage[] slots;
+    private final int mask;
+    private final int indexShift;
+    /**
+     * Round of the last publish of every slot, a slot is published for sequence {@code s} when it holds
+     * {@code s >>> indexShift}
+     */
+    private final AtomicIntegerArray published;
+    /**
+     * Last claimed sequence
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /**
+     * Last sequence taken by a consumer
+     */
+    private final AtomicLong workSequence = new AtomicLong(-1);
+    /**
+     * Smallest consumer sequence seen by a producer, avoids reading all consumer sequences on every claim
+     */
+    private volatile long cachedGatingSequence = -1;
+
+    private final Consumer[] consumers;
+    private final SyslogBatchSink sink;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final Severity dropThreshold;
+    private final int batchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder invalidMessages = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private volatile boolean running = true;
+
+    private AsyncSyslogEncoder(Builder builder) {
+        int capacity = builder.capacity;
+        this.slots = new SyslogMessage[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new SyslogMessage();
+        }
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.sink = builder.sink;
+        this.waitStrategy = builder.waitStrategy;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.dropThreshold = builder.dropThreshold;
+        this.batchSize = builder.batchSize;
+        this.consumers = new Consumer[builder.consumers];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new Consumer(builder.framing);
+        }
+        for (Consumer consumer : consumers) {
+            consumer.thread = builder.threadFactory.newThread(consumer);
+            consumer.thread.start();
+        }
+    }
+
+    /**
+     * @param sink receiver of the encoded batches
+     */
+    public static Builder builder(SyslogBatchSink sink) {
+        return new Builder(sink);
+    }
+
+    /**
+     * Claims the next slot for a message of {@code severity}. When all slots are in use the {@link OverflowPolicy}
+     * decides whether to wait or to drop the message, an interrupted producer stops waiting and the message is
+     * dropped.
+     *
+     * @return sequence of the claimed slot, or {@code -1} if the message was dropped
+     * @throws IllegalStateException if the encoder has been closed
+     */
+    public long claim(Severity severity) {
+        int attempt = 0;
+        while (true) {
+            if (!running) {
+                throw new IllegalStateException("AsyncSyslogEncoder has been closed");
+            }
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > cachedGatingSequence) {
+                long gatingSequence = gatingSequence();
+                cachedGatingSequence = gatingSequence;
+                if (wrapPoint > gatingSequence) {
+                    if (overflowPolicy == OverflowPolicy.DROP
+                            || overflowPolicy == OverflowPolicy.DROP_LOWER_SEVERITIES
+                            && severity.numericalCode() > dropThreshold.numericalCode()
+                            || Thread.currentThread().isInterrupted()) {
+                        dropped.increment();
+                        return -1;
+                    }
+                    idle(attempt++);
+                    continue;
+                }
+            }
+            if (cursor.compareAndSet(current, next)) {
+                slots[(int) next & mask].setSeverity(severity);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @return the message of a claimed slot, reset and with the claimed severity. Must not be used after
+     * {@link #publish(long)}.
+     */
+    public SyslogMessage slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Hands the message of a claimed slot to the consumers.
+     */
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+        signal();
+    }
+
+    /**
+     * @return number of claimed slots not yet released by the consumers
+     */
+    public long size() {
+        return cursor.get() - gatingSequence();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return number of messages dropped because the ring was full
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of messages that could not be encoded because a mandatory field was missing
+     */
+    public long invalidMessages() {
+        return invalidMessages.sum();
+    }
+
+    /**
+     * @return number of batches for which the sink threw an exception
+     */
+    public long failedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * Stops accepting new claims, waits for the consumers to encode and hand over every published message, and stops
+     * the consumer threads. Producers must have stopped claiming before, a claim that races with closing may be
+     * left unencoded.
+     */
+    @Override
+    public void close() {
+        running = false;
+        signalAll();
+        boolean interrupted = false;
+        for (Consumer consumer : consumers) {
+            while (consumer.thread.isAlive()) {
+                try {
+                    consumer.thread.join();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long gatingSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * @return the highest sequence from {@code lowest} up to {@code highest} for which all slots are published,
+     * {@code lowest - 1} if none
+     */
+    private long highestPublished(long lowest, long highest) {
+        for (long sequence = lowest; sequence <= highest; sequence++) {
+            if (!isPublished(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return highest;
+    }
+
+    private void idle(int attempt) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELDING:
+                if (attempt > 100) {
+                    Thread.yield();
+                }
+                break;
+            case SLEEPING:
+                if (attempt > 200) {
+                    LockSupport.parkNanos(100_000L);
+                }
+                else if (attempt > 100) {
+                    Thread.yield();
+                }
+                break;
+            default:
+                lock.lock();
+                try {
+                    waiters.incrementAndGet();
+                    changed.await(1, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    waiters.decrementAndGet();
+                    lock.unlock();
+                }
+                break;
+        }
+    }
+
+    private void signal() {
+        if (waitStrategy == WaitStrategy.BLOCKING && waiters.get() > 0) {
+            signalAll();
+        }
+    }
+
+    private void signalAll() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Consumer implements Runnable {
+        /**
+         * Slots up to this sequence have been released by this consumer
+         */
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final SyslogBatchEncoder batch;
+        private Thread thread;
+
+        private Consumer(Framing framing) {
+            this.batch = new SyslogBatchEncoder(framing);
+        }
+
+        @Override
+        public void run() {
+            int attempt = 0;
+            while (true) {
+                long current = workSequence.get();
+                long next = current + 1;
+                long available = highestPublished(next, Math.min(cursor.get(), current + batchSize));
+                if (available >= next) {
+                    if (workSequence.compareAndSet(current, available)) {
+                        process(next, available);
+                        attempt = 0;
+                    }
+                }
+                else {
+                    // every slot up to current is released or held by another consumer
+                    sequence.set(current);
+                    if (!running && current >= cursor.get()) {
+                        return;
+                    }
+                    idle(attempt++);
+                }
+            }
+        }
+
+        private void process(long first, long last) {
+            batch.clear();
+            for (long s = first; s <= last; s++) {
+                SyslogMessage message = slots[(int) s & mask];
+                try {
+                    batch.add(message);
+                }
+                catch (IllegalArgumentException e) {
+                    invalidMessages.increment();
+                }
+                message.reset();
+            }
+            sequence.set(last);
+            signal();
+            if (batch.count() > 0) {
+                try {
+                    sink.write(batch);
+                }
+                catch (Exception e) {
+                    failedBatches.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Configures an {@link AsyncSyslogEncoder}, {@link #build()} starts its consumer threads.
+     */
+    public static final class Builder {
+        private final SyslogBatchSink sink;
+        private int capacity = 1024;
+        private int consumers = 1;
+        private int batchSize = 64;
+        private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private Severity dropThreshold = Severity.WARNING;
+        private Framing framing = Framing.OCTET_COUNTING;
+        private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+        private Builder(SyslogBatchSink sink) {
+            if (sink == null) {
+                throw new IllegalArgumentException("Sink cannot be null");
+            }
+            this.sink = sink;
+        }
+
+        /**
+         * @param capacity number of slots, a power of two
+         */
+        public Builder withCapacity(int capacity) {
+            if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * @param consumers number of consumer threads
+         */
+        public Builder withConsumers(int consumers) {
+            if (consumers < 1) {
+                throw new IllegalArgumentException("Consumers must be positive: " + consumers);
+            }
+            this.consumers = consumers;
+            return this;
+        }
+
+        /**
+         * @param batchSize maximum number of messages in a batch handed to the sink
+         */
+        public Builder withBatchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder withWaitStrategy(WaitStrategy waitStrategy) {
+            if (waitStrategy == null) {
+                throw new IllegalArgumentException("Wait strategy cannot be null");
+            }
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        public Builder withOverflowPolicy(OverflowPolicy overflowPolicy) {
+            if (overflowPolicy == null) {
+                throw new IllegalArgumentException("Overflow policy cannot be null");
+            }
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * @param dropThreshold least severe severity that is kept with {@link OverflowPolicy#DROP_LOWER_SEVERITIES},
+         * {@link Severity#WARNING} by default
+         */
+        public Builder withDropThreshold(Severity dropThreshold) {
+            if (dropThreshold == null) {
+                throw new IllegalArgumentException("Drop threshold cannot be null");
+            }
+            this.dropThreshold = dropThreshold;
+            return this;
+        }
+
+        public Builder withFraming(Framing framing) {
+            if (framing == null) {
+                throw new IllegalArgumentException("Framing cannot be null");
+            }
+            this.framing = framing;
+            return this;
+        }
+
+        public Builder withThreadFactory(ThreadFactory threadFactory) {
+            if (threadFactory == null) {
+                throw new IllegalArgumentException("Thread factory cannot be null");
+            }
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        public AsyncSyslogEncoder build() {
+            return new AsyncSyslogEncoder(this);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.nio.BufferOverflowException;
+
+/**
+ * Writes the message as UTF-8 into a region of a {@code byte[]}.
+ */
+final class ByteArrayOutput extends Rfc5424Output {
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    ByteArrayOutput(byte[] buffer, int position, int limit) {
+        wrap(buffer, position, limit);
+    }
+
+    /**
+     * Points this output to a new region, allowing the instance to be reused.
+     */
+    void wrap(byte[] buffer, int position, int limit) {
+        if (position < 0 || position > limit || limit > buffer.length) {
+            throw new IndexOutOfBoundsException("Invalid region " + position + ".." + limit + " of " + buffer.length);
+        }
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    int position() {
+        return position;
+    }
+
+    /**
+     * Moves the position back to {@code position}, dropping what was written after it.
+     */
+    void rewind(int position) {
+        if (position < 0 || position > this.position) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + " before " + this.position);
+        }
+        this.position = position;
+    }
+
+    int remaining() {
+        return limit - position;
+    }
+
+    @Override
+    void write(char c) {
+        if (position >= limit) {
+            throw new BufferOverflowException();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    @Override
+    void write(CharSequence s, int start, int end) {
+        position = Utf8.encode(s, start, end, buffer, position, limit);
+    }
+
+    @Override
+    void write(PreEncoded preEncoded) {
+        writeUtf8(preEncoded.bytes, 0, preEncoded.bytes.length);
+    }
+
+    @Override
+    void writeUtf8(byte[] bytes, int offset, int length) {
+        if (limit - position < length) {
+            throw new BufferOverflowException();
+        }
+        if (substituteLineBreaks) {
+            // bytes of multi-byte UTF-8 sequences are never LF or NUL
+            for (int i = offset; i < offset + length; i++) {
+                byte b = bytes[i];
+                buffer[position++] = isLineBreak(b) ? (byte) LINE_BREAK_SUBSTITUTE : b;
+            }
+        }
+        else {
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+    }
+
+    /**
+     * Writes as many whole code points of {@code s} as fit before the limit, encoding and checking the space in the
+     * same pass.
+     *
+     * @return {@code false} if {@code s} was cut short
+     */
+    boolean writeTruncated(CharSequence s) {
+        int end = s.length();
+        int i = 0;
+        while (i < end) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (position >= limit) {
+                    return false;
+                }
+                buffer[position++] = substituteLineBreaks && isLineBreak(c) ? (byte) LINE_BREAK_SUBSTITUTE : (byte) c;
+                i++;
+            }
+            else {
+                int next = i + 1;
+                if (Character.isHighSurrogate(c) && next < end && Character.isLowSurrogate(s.charAt(next))) {
+                    next++;
+                }
+                int bytes = next - i == 2 ? 4 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 1 : 3;
+                if (limit - position < bytes) {
+                    return false;
+                }
+                position = Utf8.encode(s, i, next, buffer, position, limit);
+                i = next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies as many whole UTF-8 sequences of the bytes as fit before the limit.
+     *
+     * @return {@code false} if the bytes were cut short
+     */
+    boolean writeUtf8Truncated(byte[] bytes, int offset, int length) {
+        int fits = Math.min(length, limit - position);
+        if (fits < length) {
+            // back off to the start of the sequence that does not fit
+            while (fits > 0 && (bytes[offset + fits] & 0xC0) == 0x80) {
+                fits--;
+            }
+        }
+        writeUtf8(bytes, offset, fits);
+        return fits == length;
+    }
+}
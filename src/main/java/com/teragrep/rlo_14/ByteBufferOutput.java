@@ -0,0 +1,75 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the message as UTF-8 into a {@link ByteBuffer} without an accessible array, such as a direct buffer.
+ *
+ * Only absolute puts are used, the position of the buffer is updated by the caller once the whole message fits.
+ */
+final class ByteBufferOutput extends Rfc5424Output {
+    private final ByteBuffer buffer;
+    private int position;
+    private final int limit;
+
+    ByteBufferOutput(ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.limit());
+    }
+
+    ByteBufferOutput(ByteBuffer buffer, int position, int limit) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    int position() {
+        return position;
+    }
+
+    @Override
+    void write(char c) {
+        if (position >= limit) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(position++, (byte) c);
+    }
+
+    @Override
+    void write(CharSequence s, int start, int end) {
+        position = Utf8.encode(s, start, end, buffer, position, limit);
+    }
+
+    @Override
+    void write(PreEncoded preEncoded) {
+        writeUtf8(preEncoded.bytes, 0, preEncoded.bytes.length);
+    }
+
+    @Override
+    void writeUtf8(byte[] bytes, int offset, int length) {
+        if (limit - position < length) {
+            throw new BufferOverflowException();
+        }
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            buffer.put(position++, substituteLineBreaks && isLineBreak(b) ? (byte) LINE_BREAK_SUBSTITUTE : b);
+        }
+    }
+}
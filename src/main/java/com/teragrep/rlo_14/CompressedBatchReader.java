@@ -0,0 +1,168 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the messages written by {@link CompressedBatchWriter}, block by block.
+ *
+ * Each block is decompressed once into a reused buffer and the messages are returned as views of it, without
+ * copying. An instance must not be used by several threads at the same time.
+ */
+public final class CompressedBatchReader implements Closeable {
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[0];
+    private byte[] block = new byte[0];
+    private ByteBuffer view = ByteBuffer.wrap(block).asReadOnlyBuffer();
+    private int position;
+    private int blockLength;
+    private int remainingMessages;
+
+    public CompressedBatchReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /**
+     * Returns the next message as a read-only view of the decompressed block, from the start of the message to its
+     * end. The same view is reused and valid until the next call.
+     *
+     * @return the next message or {@code null} at the end of the stream
+     * @throws IOException if a block is not valid
+     */
+    public ByteBuffer next() throws IOException {
+        while (position >= blockLength) {
+            if (remainingMessages != 0) {
+                throw new IOException("Block ended before its message count");
+            }
+            if (!readBlock()) {
+                return null;
+            }
+        }
+        int length = OctetCounting.parseLength(block, position, blockLength);
+        if (length < 0 || remainingMessages == 0) {
+            throw new IOException("Invalid MSG-LEN at offset " + position + " of the block");
+        }
+        int start = position + OctetCounting.digits(length) + 1;
+        position = start + length;
+        remainingMessages--;
+        ((Buffer) view).limit(position);
+        ((Buffer) view).position(start);
+        return view;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    /**
+     * @return {@code false} at the end of the stream
+     */
+    private boolean readBlock() throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        }
+        catch (EOFException e) {
+            return false;
+        }
+        if (magic != CompressedBatchWriter.MAGIC) {
+            throw new IOException("Not a compressed batch block");
+        }
+        byte version = in.readByte();
+        if (version != CompressedBatchWriter.VERSION) {
+            throw new IOException("Unsupported block version " + version);
+        }
+        byte method = in.readByte();
+        int count = in.readInt();
+        int uncompressed = in.readInt();
+        int length = in.readInt();
+        validateHeader(method, count, uncompressed, length);
+        if (block.length <= uncompressed) {
+            // one spare byte to notice data longer than the header says
+            block = new byte[uncompressed + 1];
+            view = ByteBuffer.wrap(block).asReadOnlyBuffer();
+        }
+        if (method == CompressedBatchWriter.STORED) {
+            in.readFully(block, 0, length);
+        }
+        else if (method == CompressedBatchWriter.DEFLATE) {
+            if (compressed.length < length) {
+                compressed = new byte[length];
+            }
+            in.readFully(compressed, 0, length);
+            inflate(length, uncompressed);
+        }
+        position = 0;
+        blockLength = uncompressed;
+        remainingMessages = count;
+        return true;
+    }
+
+    /**
+     * Checks the header before anything is allocated for the block, the writer never exceeds these bounds.
+     */
+    private static void validateHeader(byte method, int count, int uncompressed, int length) throws IOException {
+        if (method != CompressedBatchWriter.STORED && method != CompressedBatchWriter.DEFLATE) {
+            throw new IOException("Unsupported block method " + method);
+        }
+        if (uncompressed < 0 || uncompressed > CompressedBatchWriter.MAX_BLOCK_SIZE) {
+            throw new IOException("Invalid uncompressed block length " + uncompressed);
+        }
+        // the shortest frame is "0 "
+        if (count < 0 || count > uncompressed / 2) {
+            throw new IOException("Invalid block message count " + count);
+        }
+        if (method == CompressedBatchWriter.STORED ? length != uncompressed : length <= 0 || length >= uncompressed) {
+            throw new IOException("Invalid block length " + length);
+        }
+    }
+
+    private void inflate(int length, int uncompressed) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, length);
+        try {
+            int inflated = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(block, inflated, block.length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || inflated == block.length)) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != uncompressed || !inflater.finished()) {
+                throw new IOException("Block data does not match its uncompressed length");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Invalid block data", e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Writes messages to a stream as compressed blocks of octet-counted frames.
+ *
+ * Messages are encoded into a {@link SyslogBatchEncoder} and the batch is compressed with {@link Deflater} as one
+ * block when it reaches the block size, when the oldest message in it has waited for the maximum delay or on
+ * {@link #flush()}. The delay is checked when a message is added, a writer that stops receiving messages must be
+ * flushed by the caller.
+ *
+ * Every block starts with a header:
+ * <pre>
+ * MAGIC "RLOZ"          4 bytes
+ * VERSION               1 byte
+ * METHOD                1 byte, {@link #STORED} or {@link #DEFLATE}
+ * MESSAGE COUNT         4 bytes
+ * UNCOMPRESSED LENGTH   4 bytes
+ * LENGTH                4 bytes, length of the block data that follows
+ * </pre>
+ * The integers are big-endian. The uncompressed block data is the octet-counted frames of
+ * <a href="https://tools.ietf.org/html/rfc6587#section-3.4.1">RFC-6587, Section 3.4.1</a>. Deflated data is in the
+ * zlib format with its checksum. A block that does not get smaller is stored as it is.
+ *
+ * The deflater and the buffers are reused for every block. An instance must not be used by several threads at the
+ * same time. Blocks are read with {@link CompressedBatchReader}.
+ */
+public final class CompressedBatchWriter implements Closeable, Flushable {
+    static final int MAGIC = 0x524C4F5A; // "RLOZ"
+    static final byte VERSION = 1;
+    static final byte STORED = 0;
+    static final byte DEFLATE = 1;
+    static final int HEADER_SIZE = 18;
+    /**
+     * Largest uncompressed block, readers reject blocks claiming more
+     */
+    static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final long maxDelayNanos;
+    private final Deflater deflater;
+    private final SyslogBatchEncoder batch;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private byte[] compressed;
+    private long firstAdded;
+    private long bytesIn;
+    private long bytesOut;
+
+    /**
+     * Writes blocks of 64 KiB at most one second apart with the default compression level.
+     */
+    public CompressedBatchWriter(OutputStream out) {
+        this(out, 64 * 1024, 1, TimeUnit.SECONDS, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param blockSize uncompressed size in bytes after which a block is written
+     * @param maxDelay time after which a block is written when the next message is added
+     * @param level compression level of {@link Deflater}
+     */
+    public CompressedBatchWriter(OutputStream out, int blockSize, long maxDelay, TimeUnit unit, int level) {
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("Maximum delay cannot be negative: " + maxDelay);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.deflater = new Deflater(level);
+        this.batch = new SyslogBatchEncoder(blockSize + 1024);
+        this.compressed = new byte[blockSize + 1024];
+    }
+
+    /**
+     * Adds a message to the current block and writes the block if it is full or too old.
+     *
+     * @throws IllegalArgumentException if a mandatory field of the message is missing or the message is larger than
+     * the maximum block size of 64 MiB
+     */
+    public void add(SyslogMessage message) throws IOException {
+        int size = batch.size();
+        int count = batch.count();
+        batch.add(message);
+        if (batch.size() > MAX_BLOCK_SIZE) {
+            // the message goes to a block of its own, or is rejected if it does not fit even there
+            batch.truncate(size, count);
+            writeBlock();
+            batch.add(message);
+            if (batch.size() > MAX_BLOCK_SIZE) {
+                batch.clear();
+                throw new IllegalArgumentException("Message does not fit in a block of " + MAX_BLOCK_SIZE + " bytes");
+            }
+        }
+        long now = System.nanoTime();
+        if (batch.count() == 1) {
+            firstAdded = now;
+        }
+        if (batch.size() >= blockSize || now - firstAdded >= maxDelayNanos) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the current block, if it has any messages, and flushes the stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * @return number of uncompressed bytes written in blocks
+     */
+    public long bytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * @return number of bytes written to the stream, headers included
+     */
+    public long bytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Writes the current block and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int size = batch.size();
+        if (size == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(batch.array(), 0, size);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished() && length < size) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        byte method;
+        byte[] data;
+        if (deflater.finished() && length < size) {
+            method = DEFLATE;
+            data = compressed;
+        }
+        else {
+            method = STORED;
+            data = batch.array();
+            length = size;
+        }
+        ((Buffer) header).clear();
+        header.putInt(MAGIC).put(VERSION).put(method).putInt(batch.count()).putInt(size).putInt(length);
+        out.write(header.array(), 0, HEADER_SIZE);
+        out.write(data, 0, length);
+        bytesIn += size;
+        bytesOut += HEADER_SIZE + length;
+        batch.clear();
+    }
+}
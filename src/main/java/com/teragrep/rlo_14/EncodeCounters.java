@@ -0,0 +1,142 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free {@link EncodeListener} counting messages and UTF-8 sizes by priority, with histograms of encoded sizes and
+ * sampled latencies.
+ *
+ * Every counter is a {@link LongAdder}, which stripes its updates over cells so threads encoding at the same time do
+ * not contend on one variable. The histograms have power-of-two buckets: bucket {@code i} counts values from
+ * {@code 2^(i-1)} to {@code 2^i - 1}, bucket 0 counts zero.
+ */
+public final class EncodeCounters implements EncodeListener {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] messages = adders(Facility.values().length * 8);
+    private final LongAdder[] sizes = adders(Facility.values().length * 8);
+    private final LongAdder[] sizeHistogram = adders(BUCKETS);
+    private final LongAdder[] latencyHistogram = adders(BUCKETS);
+    private final LongAdder latencySamples = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static int bucket(long value) {
+        return BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+
+    private static int index(Facility facility, Severity severity) {
+        return facility.numericalCode() * 8 + severity.numericalCode();
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    private static long total(LongAdder[] adders) {
+        long total = 0;
+        for (LongAdder adder : adders) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public void encoded(Priority priority, int size) {
+        int index = index(priority.facility(), priority.severity());
+        messages[index].increment();
+        sizes[index].add(size);
+        sizeHistogram[bucket(size)].increment();
+    }
+
+    @Override
+    public void latency(Priority priority, long nanos) {
+        latencySamples.increment();
+        latencyNanos.add(nanos);
+        latencyHistogram[bucket(Math.max(0, nanos))].increment();
+    }
+
+    public long messages(Facility facility, Severity severity) {
+        return messages[index(facility, severity)].sum();
+    }
+
+    public long size(Facility facility, Severity severity) {
+        return sizes[index(facility, severity)].sum();
+    }
+
+    public long totalMessages() {
+        return total(messages);
+    }
+
+    public long totalSize() {
+        return total(sizes);
+    }
+
+    /**
+     * @return message counts by encoded size, index {@code i} counts sizes from {@code 2^(i-1)} to {@code 2^i - 1}
+     */
+    public long[] sizeHistogram() {
+        return sums(sizeHistogram);
+    }
+
+    public long latencySamples() {
+        return latencySamples.sum();
+    }
+
+    /**
+     * @return sum of the sampled latencies
+     */
+    public long latencyNanos() {
+        return latencyNanos.sum();
+    }
+
+    /**
+     * @return sample counts by latency, index {@code i} counts latencies from {@code 2^(i-1)} to {@code 2^i - 1}
+     * nanoseconds
+     */
+    public long[] latencyHistogram() {
+        return sums(latencyHistogram);
+    }
+
+    /**
+     * Sets all counters to zero. Updates made during the reset may be partially lost.
+     */
+    public void reset() {
+        for (LongAdder[] adders : new LongAdder[][] { messages, sizes, sizeHistogram, latencyHistogram }) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+        latencySamples.reset();
+        latencyNanos.reset();
+    }
+}
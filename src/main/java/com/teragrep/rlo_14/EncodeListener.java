@@ -0,0 +1,41 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+/**
+ * Receives the metrics of every encoded message, registered with {@link EncodeMetrics#register(EncodeListener, int)}.
+ *
+ * The methods are called on the encoding thread right after the message is encoded, so they must be fast and
+ * thread-safe. {@link EncodeCounters} is a lock-free implementation.
+ */
+public interface EncodeListener {
+    /**
+     * @param priority priority of the message
+     * @param size encoded size of the message in UTF-8 bytes without framing, also for {@link String} and
+     * {@link StringBuilder} outputs
+     */
+    void encoded(Priority priority, int size);
+
+    /**
+     * Called for a sample of the encoded messages, after {@link #encoded(Priority, int)}.
+     *
+     * @param nanos time spent encoding the message
+     */
+    void latency(Priority priority, long nanos);
+}
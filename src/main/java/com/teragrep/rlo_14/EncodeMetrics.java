@@ -0,0 +1,115 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Registration of the {@link EncodeListener} notified by all encoders of this library.
+ *
+ * Without a registered listener the encoders only check a field for {@code null}. With a listener, every message is
+ * counted and one in {@code sampleInterval} messages, chosen at random, is also timed, so the clock is not read for
+ * every message.
+ */
+public final class EncodeMetrics {
+    private static volatile EncodeListener listener;
+    private static volatile int sampleInterval = 1;
+
+    private EncodeMetrics() {
+    }
+
+    /**
+     * Registers a listener timing one in 1024 messages, replacing the previous listener.
+     */
+    public static void register(EncodeListener listener) {
+        register(listener, 1024);
+    }
+
+    /**
+     * Registers a listener, replacing the previous listener.
+     *
+     * @param sampleInterval one in this many messages is timed, 1 times every message
+     */
+    public static void register(EncodeListener listener, int sampleInterval) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Sample interval must be positive: " + sampleInterval);
+        }
+        EncodeMetrics.sampleInterval = sampleInterval;
+        EncodeMetrics.listener = listener;
+    }
+
+    /**
+     * Removes the registered listener.
+     */
+    public static void unregister() {
+        listener = null;
+    }
+
+    /**
+     * @return the registered listener or {@code null}
+     */
+    static EncodeListener listener() {
+        return listener;
+    }
+
+    /**
+     * @return start time if this message is sampled, otherwise 0
+     */
+    static long start(EncodeListener listener) {
+        if (listener == null) {
+            return 0;
+        }
+        int interval = sampleInterval;
+        if (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    static void encoded(EncodeListener listener, SyslogMessage message, int size, long start) {
+        if (listener == null) {
+            return;
+        }
+        Priority priority = message.getPriority();
+        listener.encoded(priority, size);
+        if (start != 0) {
+            listener.latency(priority, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Same as {@link #encoded(EncodeListener, SyslogMessage, int, long)} for a message encoded to the chars of
+     * {@code s} from {@code from} to {@code to}, reported as their UTF-8 length.
+     */
+    static void encoded(EncodeListener listener, SyslogMessage message, CharSequence s, int from, int to, long start) {
+        if (listener == null) {
+            return;
+        }
+        // the clock is read first so the latency does not include counting the bytes
+        long nanos = start != 0 ? System.nanoTime() - start : 0;
+        Priority priority = message.getPriority();
+        listener.encoded(priority, Utf8.length(s, from, to));
+        if (start != 0) {
+            listener.latency(priority, nanos);
+        }
+    }
+}
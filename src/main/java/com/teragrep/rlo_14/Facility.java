@@ -16,9 +16,8 @@
  */
 package com.teragrep.rlo_14;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Syslog facility as defined in <a href="https://tools.ietf.org/html/rfc5424">RFC 5424 - The Syslog Protocol</a>.
@@ -127,14 +126,13 @@ public enum Facility implements Comparable<Facility> {
      */
     LOCAL7(23, "LOCAL7");
 
-    // mapping
-    private final static Map<String, Facility> facilityFromLabel = new HashMap<>();
-    private final static Map<Integer, Facility> facilityFromNumericalCode = new HashMap<>();
+    // mapping, numerical codes are dense so the code is the index
+    private final static Facility[] facilityValues = values();
+    private final static Facility[] facilityFromNumericalCode = new Facility[facilityValues.length];
 
     static {
-        for (Facility facility : Facility.values()) {
-            facilityFromLabel.put(facility.label, facility);
-            facilityFromNumericalCode.put(facility.numericalCode, facility);
+        for (Facility facility : facilityValues) {
+            facilityFromNumericalCode[facility.numericalCode] = facility;
         }
     }
 
@@ -158,27 +156,57 @@ public enum Facility implements Comparable<Facility> {
      * @throws IllegalArgumentException the given numericalCode is not a valid Syslog facility numerical code
      */
     public static Facility fromNumericalCode(int numericalCode) throws IllegalArgumentException {
-        Facility facility = facilityFromNumericalCode.get(numericalCode);
-        if (facility == null) {
+        if (numericalCode < 0 || numericalCode >= facilityFromNumericalCode.length) {
             throw new IllegalArgumentException("Invalid facility '" + numericalCode + "'");
         }
-        return facility;
+        return facilityFromNumericalCode[numericalCode];
     }
 
     /**
-     * @param label Syslog facility textual code. {@code null} or empty returns {@code null}
+     * @param label Syslog facility textual code, matched case-insensitively. {@code null} or empty returns {@code null}
      * @return Syslog facility, {@code null} if given value is {@code null}
      * @throws IllegalArgumentException the given value is not a valid Syslog facility textual code
      */
     public static Facility fromLabel(String label) throws IllegalArgumentException {
-        if (label == null || label.isEmpty())
+        return fromLabel((CharSequence) label);
+    }
+
+    /**
+     * @param label Syslog facility textual code, matched case-insensitively. {@code null} or empty returns {@code null}
+     * @return Syslog facility, {@code null} if given value is {@code null}
+     * @throws IllegalArgumentException the given value is not a valid Syslog facility textual code
+     */
+    public static Facility fromLabel(CharSequence label) throws IllegalArgumentException {
+        if (label == null || label.length() == 0)
             return null;
 
-        Facility facility = facilityFromLabel.get(label);
-        if (facility == null) {
-            throw new IllegalArgumentException("Invalid facility '" + label + "'");
+        for (Facility facility : facilityValues) {
+            if (Labels.matches(facility.label, label)) {
+                return facility;
+            }
         }
-        return facility;
+        throw new IllegalArgumentException("Invalid facility '" + label + "'");
+    }
+
+    /**
+     * @param buffer US-ASCII or UTF-8 encoded Syslog facility textual code, matched case-insensitively
+     * @param offset start of the textual code in {@code buffer}
+     * @param length length of the textual code, empty returns {@code null}
+     * @return Syslog facility, {@code null} if given length is zero
+     * @throws IllegalArgumentException the given range is not a valid Syslog facility textual code
+     */
+    public static Facility fromLabel(byte[] buffer, int offset, int length) throws IllegalArgumentException {
+        if (length == 0)
+            return null;
+
+        for (Facility facility : facilityValues) {
+            if (Labels.matches(facility.label, buffer, offset, length)) {
+                return facility;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Invalid facility '" + new String(buffer, offset, length, StandardCharsets.UTF_8) + "'"
+        );
     }
 
     /**
@@ -195,6 +223,13 @@ public enum Facility implements Comparable<Facility> {
         return label;
     }
 
+    /**
+     * @return priority of this facility with the given severity
+     */
+    public Priority priority(Severity severity) {
+        return Priority.of(this, severity);
+    }
+
     /**
      * Compare on {@link Facility#numericalCode()}
      */
@@ -0,0 +1,36 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+/**
+ * Framing of messages in a stream, as defined in <a href="https://tools.ietf.org/html/rfc6587">RFC-6587</a>.
+ */
+public enum Framing {
+    /**
+     * {@code MSG-LEN SP MSG}, see <a href="https://tools.ietf.org/html/rfc6587#section-3.4.1">RFC-6587, Section
+     * 3.4.1</a>. The message is written as it is.
+     */
+    OCTET_COUNTING,
+    /**
+     * {@code MSG LF}, see <a href="https://tools.ietf.org/html/rfc6587#section-3.4.2">RFC-6587, Section 3.4.2</a>.
+     * LF and NUL inside the message would be taken as trailers by the receiver, so they are replaced with a space
+     * while the message is encoded.
+     */
+    NON_TRANSPARENT
+}
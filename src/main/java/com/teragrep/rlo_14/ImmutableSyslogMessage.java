@@ -0,0 +1,377 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Immutable {@link SyslogMessage}, created with a {@link Builder} or copied from a mutable message with
+ * {@link #copyOf(SyslogMessage)}.
+ *
+ * The fields are fixed when the message is created and the SD elements are {@link SDElement#freeze() frozen}, so an
+ * instance can be handed to other threads through any queue without copying, and encoded by several threads at the
+ * same time. It can be used everywhere a {@link SyslogMessage} is accepted, all methods that would change it throw
+ * {@link UnsupportedOperationException}.
+ */
+public final class ImmutableSyslogMessage extends SyslogMessage {
+    /**
+     * Holds the fields, never changed after construction. Reachable only through this final field, so the fields are
+     * visible to every thread that sees the instance.
+     */
+    private final SyslogMessage fields;
+    private final Set<SDElement> sdElements;
+
+    private ImmutableSyslogMessage(SyslogMessage fields) {
+        this.fields = fields;
+        this.sdElements = Collections.unmodifiableSet(fields.getSDElements());
+    }
+
+    /**
+     * @return an immutable copy of {@code message}, or {@code message} itself if it is already immutable
+     */
+    public static ImmutableSyslogMessage copyOf(SyslogMessage message) {
+        if (message instanceof ImmutableSyslogMessage) {
+            return (ImmutableSyslogMessage) message;
+        }
+        return new ImmutableSyslogMessage(message.snapshot());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Facility getFacility() {
+        return fields.getFacility();
+    }
+
+    @Override
+    public Severity getSeverity() {
+        return fields.getSeverity();
+    }
+
+    @Override
+    public Priority getPriority() {
+        return fields.getPriority();
+    }
+
+    @Override
+    public String getTimestamp() {
+        return fields.getTimestamp();
+    }
+
+    @Override
+    public String getHostname() {
+        return fields.getHostname();
+    }
+
+    @Override
+    public String getAppName() {
+        return fields.getAppName();
+    }
+
+    @Override
+    public String getProcId() {
+        return fields.getProcId();
+    }
+
+    @Override
+    public String getMsgId() {
+        return fields.getMsgId();
+    }
+
+    @Override
+    public String getMsg() {
+        return fields.getMsg();
+    }
+
+    /**
+     * @return the frozen SD elements, not modifiable
+     */
+    @Override
+    public Set<SDElement> getSDElements() {
+        return sdElements;
+    }
+
+    @Override
+    public SyslogMessageTemplate getTemplate() {
+        return fields.getTemplate();
+    }
+
+    @Override
+    int estimatedLength() {
+        return fields.estimatedLength();
+    }
+
+    @Override
+    void writeRfc5424(Rfc5424Output out) {
+        fields.writeRfc5424(out);
+    }
+
+    @Override
+    void writeHeader(Rfc5424Output out) {
+        fields.writeHeader(out);
+    }
+
+    @Override
+    void writeStructuredData(Rfc5424Output out) {
+        fields.writeStructuredData(out);
+    }
+
+    @Override
+    void writeMsg(Rfc5424Output out) {
+        fields.writeMsg(out);
+    }
+
+    @Override
+    boolean writeMsgTruncated(ByteArrayOutput out) {
+        return fields.writeMsgTruncated(out);
+    }
+
+    @Override
+    void writeSDElements(Rfc5424Output out) {
+        fields.writeSDElements(out);
+    }
+
+    @Override
+    SyslogMessage snapshot() {
+        return fields;
+    }
+
+    @Override
+    public void setFacility(Facility facility) {
+        throw immutable();
+    }
+
+    @Override
+    public void setSeverity(Severity severity) {
+        throw immutable();
+    }
+
+    @Override
+    public void setPriority(Priority priority) {
+        throw immutable();
+    }
+
+    @Override
+    public void setTimestamp(long timestamp) {
+        throw immutable();
+    }
+
+    @Override
+    public void setTimestamp(Instant timestamp) {
+        throw immutable();
+    }
+
+    @Override
+    public void setTimestamp(String timestamp, boolean skipParse) {
+        throw immutable();
+    }
+
+    @Override
+    public void setTrustedTimestamp(String timestamp) {
+        throw immutable();
+    }
+
+    @Override
+    public void setHostname(String hostname) {
+        throw immutable();
+    }
+
+    @Override
+    public void setAppName(String appName) {
+        throw immutable();
+    }
+
+    @Override
+    public void setProcId(String procId) {
+        throw immutable();
+    }
+
+    @Override
+    public void setMsgId(String msgId) {
+        throw immutable();
+    }
+
+    @Override
+    public void setMsg(String msg) {
+        throw immutable();
+    }
+
+    @Override
+    public void setMsg(CharSequence msg) {
+        throw immutable();
+    }
+
+    @Override
+    public void setMsg(char[] chars, int offset, int length) {
+        throw immutable();
+    }
+
+    @Override
+    public void setUtf8Msg(byte[] utf8, int offset, int length) {
+        throw immutable();
+    }
+
+    @Override
+    public void setUtf8Msg(ByteBuffer utf8) {
+        throw immutable();
+    }
+
+    @Override
+    public void setSDElements(Set<SDElement> ssde) {
+        throw immutable();
+    }
+
+    @Override
+    public SyslogMessage withSDElement(SDElement sde) {
+        throw immutable();
+    }
+
+    @Override
+    public void setTemplate(SyslogMessageTemplate template) {
+        throw immutable();
+    }
+
+    @Override
+    public void reset() {
+        throw immutable();
+    }
+
+    @Override
+    ParsedFields parsedFields() {
+        throw immutable();
+    }
+
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("ImmutableSyslogMessage can not be modified");
+    }
+
+    /**
+     * Collects the fields of an {@link ImmutableSyslogMessage}. A builder can build any number of messages and is not
+     * thread-safe itself.
+     */
+    public static final class Builder {
+        private final SyslogMessage message = new SyslogMessage();
+
+        private Builder() {
+        }
+
+        public Builder withFacility(Facility facility) {
+            message.setFacility(facility);
+            return this;
+        }
+
+        public Builder withSeverity(Severity severity) {
+            message.setSeverity(severity);
+            return this;
+        }
+
+        public Builder withPriority(Priority priority) {
+            message.setPriority(priority);
+            return this;
+        }
+
+        /**
+         * @param timestamp milliseconds since the epoch
+         */
+        public Builder withTimestamp(long timestamp) {
+            message.setTimestamp(timestamp);
+            return this;
+        }
+
+        public Builder withTimestamp(Instant timestamp) {
+            message.setTimestamp(timestamp);
+            return this;
+        }
+
+        public Builder withTimestamp(String timestamp) {
+            message.setTimestamp(timestamp, false);
+            return this;
+        }
+
+        public Builder withTimestamp(String timestamp, boolean skipParse) {
+            message.setTimestamp(timestamp, skipParse);
+            return this;
+        }
+
+        public Builder withTrustedTimestamp(String timestamp) {
+            message.setTrustedTimestamp(timestamp);
+            return this;
+        }
+
+        public Builder withHostname(String hostname) {
+            message.setHostname(hostname);
+            return this;
+        }
+
+        public Builder withAppName(String appName) {
+            message.setAppName(appName);
+            return this;
+        }
+
+        public Builder withProcId(String procId) {
+            message.setProcId(procId);
+            return this;
+        }
+
+        public Builder withMsgId(String msgId) {
+            message.setMsgId(msgId);
+            return this;
+        }
+
+        public Builder withMsg(String msg) {
+            message.setMsg(msg);
+            return this;
+        }
+
+        /**
+         * Adds a frozen copy of {@code sde}, later changes to {@code sde} are not part of the message.
+         */
+        public Builder withSDElement(SDElement sde) {
+            message.withSDElement(sde.freeze());
+            return this;
+        }
+
+        /**
+         * @see SyslogMessage#setTemplate(SyslogMessageTemplate)
+         */
+        public Builder withTemplate(SyslogMessageTemplate template) {
+            message.setTemplate(template);
+            return this;
+        }
+
+        /**
+         * @return a new immutable message with the fields collected so far
+         * @throws IllegalArgumentException if facility or severity is not set
+         */
+        public ImmutableSyslogMessage build() {
+            if (message.getFacility() == null) {
+                throw new IllegalArgumentException("Facility must be set before constructing a message.");
+            }
+            if (message.getSeverity() == null) {
+                throw new IllegalArgumentException("Severity must be set before constructing a message");
+            }
+            return new ImmutableSyslogMessage(message.snapshot());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+/**
+ * Allocation free, case-insensitive matching of the upper case US-ASCII labels of {@link Facility} and
+ * {@link Severity}.
+ */
+final class Labels {
+    private Labels() {
+    }
+
+    private static int toUpperCase(int c) {
+        return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c;
+    }
+
+    static boolean matches(String label, CharSequence input) {
+        int length = label.length();
+        if (input.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (toUpperCase(input.charAt(i)) != label.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean matches(String label, byte[] input, int offset, int length) {
+        if (label.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (toUpperCase(input[offset + i]) != label.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+/**
+ * Counts the chars and the UTF-8 bytes of the message without writing it, so outputs can be sized exactly.
+ */
+final class LengthOutput extends Rfc5424Output {
+    private int chars;
+    private int bytes;
+
+    /**
+     * @return number of chars written, the length of the {@link String} form
+     */
+    int chars() {
+        return chars;
+    }
+
+    /**
+     * @return number of UTF-8 bytes written
+     */
+    int bytes() {
+        return bytes;
+    }
+
+    @Override
+    void write(char c) {
+        chars++;
+        bytes++;
+    }
+
+    @Override
+    void write(CharSequence s, int start, int end) {
+        chars += end - start;
+        bytes += Utf8.length(s, start, end);
+    }
+
+    @Override
+    void write(PreEncoded preEncoded) {
+        chars += preEncoded.chars.length();
+        bytes += preEncoded.bytes.length;
+    }
+
+    @Override
+    void writeUtf8(byte[] bytes, int offset, int length) {
+        this.chars += Utf8.decodedLength(bytes, offset, length);
+        this.bytes += length;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Octet-counting framing of <a href="https://tools.ietf.org/html/rfc6587#section-3.4.1">RFC-6587, Section 3.4.1</a>,
+ * {@code MSG-LEN SP SYSLOG-MSG}.
+ *
+ * A message is encoded directly after space reserved for its length prefix, and the prefix is written once the length
+ * is known. The message is moved only when its length has a different number of digits than reserved.
+ */
+final class OctetCounting {
+    /**
+     * Digits of the longest MSG-LEN, {@link Integer#MAX_VALUE}
+     */
+    static final int MAX_DIGITS = 10;
+
+    private OctetCounting() {
+    }
+
+    /**
+     * @return number of decimal digits in {@code value}, which must not be negative
+     */
+    static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Writes the length prefix of the message encoded from {@code messageStart} to {@code messageEnd}, in the space
+     * reserved from {@code frameStart}, moving the message if the prefix needs a different number of digits.
+     *
+     * @param limit position in {@code buffer} that the frame must not reach past
+     * @return position after the frame, or -1 if the moved message would end past {@code limit}
+     */
+    static int completeFrame(byte[] buffer, int frameStart, int messageStart, int messageEnd, int limit) {
+        int length = messageEnd - messageStart;
+        int shift = digits(length) - (messageStart - frameStart - 1);
+        if (shift != 0) {
+            if (messageEnd + shift > limit) {
+                return -1;
+            }
+            System.arraycopy(buffer, messageStart, buffer, messageStart + shift, length);
+            messageStart += shift;
+        }
+        int i = messageStart - 1;
+        buffer[i] = ' ';
+        for (int value = length; i > frameStart; value /= 10) {
+            buffer[--i] = (byte) ('0' + value % 10);
+        }
+        return messageStart + length;
+    }
+
+    /**
+     * Same as {@link #completeFrame(byte[], int, int, int, int)} with absolute positions of {@code buffer}.
+     */
+    static int completeFrame(ByteBuffer buffer, int frameStart, int messageStart, int messageEnd, int limit) {
+        int length = messageEnd - messageStart;
+        int shift = digits(length) - (messageStart - frameStart - 1);
+        if (shift != 0) {
+            if (messageEnd + shift > limit) {
+                return -1;
+            }
+            if (shift > 0) {
+                for (int i = messageEnd - 1; i >= messageStart; i--) {
+                    buffer.put(i + shift, buffer.get(i));
+                }
+            }
+            else {
+                for (int i = messageStart; i < messageEnd; i++) {
+                    buffer.put(i + shift, buffer.get(i));
+                }
+            }
+            messageStart += shift;
+        }
+        int i = messageStart - 1;
+        buffer.put(i, (byte) ' ');
+        for (int value = length; i > frameStart; value /= 10) {
+            buffer.put(--i, (byte) ('0' + value % 10));
+        }
+        return messageStart + length;
+    }
+
+    /**
+     * Parses the {@code MSG-LEN SP} prefix of the frame at {@code position}. The message starts
+     * {@code digits(length) + 1} bytes after {@code position}.
+     *
+     * @param limit position in {@code buffer} that the frame must not reach past
+     * @return length of the message, or -1 if the frame does not start with a valid prefix or does not end by
+     * {@code limit}
+     */
+    static int parseLength(byte[] buffer, int position, int limit) {
+        long length = 0;
+        int i = position;
+        while (true) {
+            if (i >= limit) {
+                return -1;
+            }
+            byte b = buffer[i];
+            if (b == ' ' && i > position) {
+                break;
+            }
+            if (b < '0' || b > '9' || i - position >= MAX_DIGITS || length == 0 && i > position) {
+                return -1;
+            }
+            length = length * 10 + (b - '0');
+            i++;
+        }
+        return length > limit - (i + 1) ? -1 : (int) length;
+    }
+
+    /**
+     * Same as {@link #parseLength(byte[], int, int)} with absolute positions of {@code buffer}.
+     */
+    static int parseLength(ByteBuffer buffer, int position, int limit) {
+        long length = 0;
+        int i = position;
+        while (true) {
+            if (i >= limit) {
+                return -1;
+            }
+            byte b = buffer.get(i);
+            if (b == ' ' && i > position) {
+                break;
+            }
+            if (b < '0' || b > '9' || i - position >= MAX_DIGITS || length == 0 && i > position) {
+                return -1;
+            }
+            length = length * 10 + (b - '0');
+            i++;
+        }
+        return length > limit - (i + 1) ? -1 : (int) length;
+    }
+}
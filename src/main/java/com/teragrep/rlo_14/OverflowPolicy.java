@@ -0,0 +1,37 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+/**
+ * What {@link AsyncSyslogEncoder#claim(Severity)} does when all slots of the ring are in use.
+ */
+public enum OverflowPolicy {
+    /**
+     * Wait for a free slot using the {@link WaitStrategy} of the encoder.
+     */
+    BLOCK,
+    /**
+     * Drop the message.
+     */
+    DROP,
+    /**
+     * Drop messages less severe than the drop threshold of the encoder and wait for a free slot for the others.
+     */
+    DROP_LOWER_SEVERITIES
+}
@@ -0,0 +1,113 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fields of a parsed message that are still offsets into the parsed input.
+ *
+ * A field is pending until the message decodes it on first access or a setter replaces it. Pending fields are copied
+ * to byte outputs as they are, without decoding.
+ */
+final class ParsedFields {
+    static final int TIMESTAMP = 0;
+    static final int HOSTNAME = 1;
+    static final int APP_NAME = 2;
+    static final int PROC_ID = 3;
+    static final int MSG_ID = 4;
+    static final int STRUCTURED_DATA = 5;
+    static final int MSG = 6;
+
+    private byte[] buffer;
+    /**
+     * Copy of the input when it was a buffer without an accessible array, reused by the next parse
+     */
+    private byte[] copy;
+    private final int[] start = new int[7];
+    private final int[] end = new int[7];
+    private int pending;
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    void source(byte[] buffer) {
+        this.buffer = buffer;
+        this.pending = 0;
+    }
+
+    /**
+     * Copies the remaining bytes of {@code input} into a reused array that becomes the source.
+     *
+     * @return offset of the copied bytes in {@link #buffer()}
+     */
+    int source(ByteBuffer input) {
+        int length = input.remaining();
+        if (copy == null || copy.length < length) {
+            copy = new byte[Math.max(length, 256)];
+        }
+        input.duplicate().get(copy, 0, length);
+        source(copy);
+        return 0;
+    }
+
+    void set(int field, int start, int end) {
+        this.start[field] = start;
+        this.end[field] = end;
+        this.pending |= 1 << field;
+    }
+
+    boolean isPending(int field) {
+        return (pending & (1 << field)) != 0;
+    }
+
+    void clear(int field) {
+        pending &= ~(1 << field);
+    }
+
+    void clear() {
+        buffer = null;
+        pending = 0;
+    }
+
+    int start(int field) {
+        return start[field];
+    }
+
+    int end(int field) {
+        return end[field];
+    }
+
+    /**
+     * Decodes a pending field and marks it as no longer pending.
+     */
+    String decode(int field) {
+        clear(field);
+        int length = end[field] - start[field];
+        if (length == 1 && buffer[start[field]] == '-' && field != MSG) {
+            return SyslogMessage.NILVALUE;
+        }
+        return new String(buffer, start[field], length, StandardCharsets.UTF_8);
+    }
+
+    void write(int field, Rfc5424Output out) {
+        out.writeUtf8(buffer, start[field], end[field] - start[field]);
+    }
+}
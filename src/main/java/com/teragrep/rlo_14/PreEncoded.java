@@ -0,0 +1,34 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Part of a message rendered ahead of time, kept both as chars and as UTF-8 bytes so that either kind of
+ * {@link Rfc5424Output} can copy it as a single block.
+ */
+final class PreEncoded {
+    final String chars;
+    final byte[] bytes;
+
+    PreEncoded(String chars) {
+        this.chars = chars;
+        this.bytes = chars.getBytes(StandardCharsets.UTF_8);
+    }
+}
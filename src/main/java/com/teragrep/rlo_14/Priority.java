@@ -0,0 +1,163 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+/**
+ * Syslog priority, the combination of {@link Facility} and {@link Severity} as defined in
+ * <a href="https://tools.ietf.org/html/rfc5424#section-6.2.1">RFC-5424, Section 6.2.1</a>.
+ *
+ * All 192 priorities are created once, together with their encoded {@code <PRI>1 } message prefix, so looking one
+ * up or writing its prefix does not allocate.
+ */
+public final class Priority {
+    private static final Priority[] PRIORITIES = new Priority[Facility.values().length * 8];
+
+    static {
+        for (Facility facility : Facility.values()) {
+            for (Severity severity : Severity.values()) {
+                Priority priority = new Priority(facility, severity);
+                PRIORITIES[priority.value] = priority;
+            }
+        }
+    }
+
+    private final Facility facility;
+    private final Severity severity;
+    private final int value;
+    /**
+     * {@code <PRI>1 }, the priority and version followed by a space
+     */
+    final PreEncoded prefix;
+
+    private Priority(Facility facility, Severity severity) {
+        this.facility = facility;
+        this.severity = severity;
+        this.value = facility.numericalCode() * 8 + severity.numericalCode();
+        this.prefix = new PreEncoded("<" + value + ">1 ");
+    }
+
+    /**
+     * @return priority of the given facility and severity, not {@code null}
+     */
+    public static Priority of(Facility facility, Severity severity) {
+        return PRIORITIES[facility.numericalCode() * 8 + severity.numericalCode()];
+    }
+
+    /**
+     * @param value priority value, facility * 8 + severity
+     * @return priority, not {@code null}
+     * @throws IllegalArgumentException the given value is not between 0 and 191
+     */
+    public static Priority fromValue(int value) throws IllegalArgumentException {
+        if (value < 0 || value >= PRIORITIES.length) {
+            throw new IllegalArgumentException("Invalid priority '" + value + "'");
+        }
+        return PRIORITIES[value];
+    }
+
+    /**
+     * Parses a {@code <PRI>} field, such as {@code <14>}.
+     *
+     * @param buffer US-ASCII or UTF-8 encoded input
+     * @param offset position of the {@code '<'}
+     * @param length length of the field including the angle brackets
+     * @return priority, not {@code null}
+     * @throws IllegalArgumentException the given range is not a valid {@code <PRI>} field or not within
+     * {@code buffer}
+     */
+    public static Priority parse(byte[] buffer, int offset, int length) throws IllegalArgumentException {
+        if (buffer == null || offset < 0 || length < 0 || offset > buffer.length - length) {
+            throw new IllegalArgumentException("Invalid priority field");
+        }
+        // the range is within the buffer, so every read below is too
+        int limit = offset + length;
+        if (length < 3 || length > 5 || buffer[offset] != '<' || buffer[limit - 1] != '>') {
+            throw new IllegalArgumentException("Invalid priority field");
+        }
+        int value = 0;
+        for (int i = offset + 1; i < limit - 1; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid priority field");
+            }
+            value = value * 10 + digit;
+        }
+        return fromValue(value);
+    }
+
+    /**
+     * Parses a {@code <PRI>} field, such as {@code <14>}.
+     *
+     * @return priority, not {@code null}
+     * @throws IllegalArgumentException the given value is not a valid {@code <PRI>} field
+     */
+    public static Priority parse(CharSequence field) throws IllegalArgumentException {
+        int length = field.length();
+        if (length < 3 || length > 5 || field.charAt(0) != '<' || field.charAt(length - 1) != '>') {
+            throw new IllegalArgumentException("Invalid priority field '" + field + "'");
+        }
+        int value = 0;
+        for (int i = 1; i < length - 1; i++) {
+            int digit = field.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid priority field '" + field + "'");
+            }
+            value = value * 10 + digit;
+        }
+        return fromValue(value);
+    }
+
+    public Facility facility() {
+        return facility;
+    }
+
+    public Severity severity() {
+        return severity;
+    }
+
+    /**
+     * Priority value, facility * 8 + severity
+     */
+    public int value() {
+        return value;
+    }
+
+    /**
+     * @return the encoded {@code <PRI>1 } prefix of a message with this priority
+     */
+    public String prefix() {
+        return prefix.chars;
+    }
+
+    /**
+     * Copies the UTF-8 encoded {@code <PRI>1 } prefix of a message with this priority.
+     *
+     * @return number of bytes copied
+     * @throws IndexOutOfBoundsException if the prefix does not fit in {@code out}
+     */
+    public int copyPrefix(byte[] out, int offset) {
+        byte[] bytes = prefix.bytes;
+        System.arraycopy(bytes, 0, out, offset, bytes.length);
+        return bytes.length;
+    }
+
+    @Override
+    public String toString() {
+        return "Priority{" + "facility=" + facility + ", severity=" + severity + ", value=" + value + '}';
+    }
+}
@@ -0,0 +1,110 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+/**
+ * Target of the RFC 5424 encoding. The layout of the message is written once in
+ * {@link SyslogMessage} and the implementations decide whether it ends up as chars or as UTF-8 bytes.
+ */
+abstract class Rfc5424Output {
+    /**
+     * Space written in place of LF and NUL in the fields of the message, for framings that use them as trailers
+     */
+    static final char LINE_BREAK_SUBSTITUTE = ' ';
+
+    /**
+     * Whether LF and NUL in the fields of the message are replaced with {@link #LINE_BREAK_SUBSTITUTE}. The delimiters
+     * written with {@link #write(char)} are never replaced.
+     */
+    boolean substituteLineBreaks;
+
+    /**
+     * Writes a single US-ASCII character, used for the delimiters of the message.
+     */
+    abstract void write(char c);
+
+    /**
+     * Writes the chars of {@code s} from {@code start} (inclusive) to {@code end} (exclusive).
+     */
+    abstract void write(CharSequence s, int start, int end);
+
+    void write(CharSequence s) {
+        write(s, 0, s.length());
+    }
+
+    /**
+     * Copies a part of the message that was rendered ahead of time.
+     */
+    abstract void write(PreEncoded preEncoded);
+
+    /**
+     * Writes bytes that are already UTF-8 encoded.
+     */
+    abstract void writeUtf8(byte[] bytes, int offset, int length);
+
+    /**
+     * Writes a field of the message, replacing LF and NUL when {@link #substituteLineBreaks} is set.
+     */
+    void writeText(CharSequence value) {
+        if (!substituteLineBreaks) {
+            write(value);
+            return;
+        }
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (isLineBreak(value.charAt(i))) {
+                write(value, start, i);
+                write(LINE_BREAK_SUBSTITUTE);
+                start = i + 1;
+            }
+        }
+        write(value, start, length);
+    }
+
+    static boolean isLineBreak(int c) {
+        return c == '\n' || c == 0;
+    }
+
+    /**
+     * Writes a PARAM-VALUE escaping {@code '"'}, {@code '\'} and {@code ']'} as required by
+     * <a href="https://tools.ietf.org/html/rfc5424#section-6.3.3">RFC-5424, Section 6.3.3</a>.
+     *
+     * The chars between the escaped ones are written as bulk ranges, so a value that needs no escaping is written
+     * with a single call after a single scan. LF and NUL are replaced in the same scan when
+     * {@link #substituteLineBreaks} is set.
+     */
+    void writeEscaped(CharSequence value) {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c == ']') {
+                write(value, start, i);
+                write('\\');
+                start = i;
+            }
+            else if (substituteLineBreaks && isLineBreak(c)) {
+                write(value, start, i);
+                write(LINE_BREAK_SUBSTITUTE);
+                start = i + 1;
+            }
+        }
+        write(value, start, length);
+    }
+}
@@ -0,0 +1,322 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Parses <a href="https://tools.ietf.org/html/rfc5424">RFC-5424</a> messages from UTF-8 bytes into a reusable
+ * {@link SyslogMessage}.
+ *
+ * The structure of the message is validated while parsing, but the header fields, the SD elements and the msg are
+ * left as offsets into the input. They are decoded only when the corresponding getter of the message is called, and
+ * encoding the message to bytes copies the undecoded fields as they are. The input must therefore not be modified
+ * while the message is in use. The timestamp is not validated beyond its length and characters.
+ *
+ * The parser has no state and can be shared by all threads.
+ */
+public final class Rfc5424Parser {
+    private static final int MAX_TIMESTAMP = 48;
+    private static final int MAX_HOSTNAME = 255;
+    private static final int MAX_APP_NAME = 48;
+    private static final int MAX_PROC_ID = 128;
+    private static final int MAX_MSG_ID = 32;
+    private static final int MAX_SD_NAME = 32;
+
+    /**
+     * Reserved SD-IDs as documented in <a href="https://www.rfc-editor.org/rfc/rfc5424.txt">RFC-5424</a>
+     */
+    private static final byte[][] RESERVED_SDID = {
+            "timeQuality".getBytes(StandardCharsets.US_ASCII),
+            "origin".getBytes(StandardCharsets.US_ASCII),
+            "meta".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    /**
+     * Parses a new message.
+     *
+     * @throws IllegalArgumentException the input is not a valid RFC-5424 message
+     */
+    public SyslogMessage parse(byte[] buffer) {
+        SyslogMessage message = new SyslogMessage();
+        parse(buffer, 0, buffer.length, message);
+        return message;
+    }
+
+    /**
+     * Parses the remaining bytes of {@code buffer} into {@code message}, which is reset first. The position of
+     * {@code buffer} is moved to its limit.
+     *
+     * Buffers without an accessible array, such as direct buffers, are copied once into an array kept by the
+     * message for its next parse.
+     *
+     * @throws IllegalArgumentException the input is not a valid RFC-5424 message
+     */
+    public void parse(ByteBuffer buffer, SyslogMessage message) {
+        if (buffer.hasArray()) {
+            parse(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), message);
+        }
+        else {
+            message.reset();
+            ParsedFields fields = message.parsedFields();
+            int length = buffer.remaining();
+            int offset = fields.source(buffer);
+            parse(fields.buffer(), offset, length, message, fields);
+        }
+        ((Buffer) buffer).position(buffer.limit());
+    }
+
+    /**
+     * Parses {@code length} bytes from {@code offset} of {@code buffer} into {@code message}, which is reset first.
+     *
+     * @throws IllegalArgumentException the input is not a valid RFC-5424 message
+     */
+    public void parse(byte[] buffer, int offset, int length, SyslogMessage message) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException("Invalid region " + offset + "+" + length + " of " + buffer.length);
+        }
+        message.reset();
+        ParsedFields fields = message.parsedFields();
+        fields.source(buffer);
+        parse(buffer, offset, length, message, fields);
+    }
+
+    private void parse(byte[] buffer, int offset, int length, SyslogMessage message, ParsedFields fields) {
+        int end = offset + length;
+        int i = offset;
+        try {
+            // PRI
+            int close = i + 1;
+            while (close < end && close < i + 5 && buffer[close] != '>') {
+                close++;
+            }
+            if (close >= end || buffer[close] != '>') {
+                throw invalid("PRI", i, offset);
+            }
+            message.setParsedPriority(Priority.parse(buffer, i, close - i + 1));
+            i = close + 1;
+
+            // VERSION
+            if (end - i < 2 || buffer[i] != '1' || buffer[i + 1] != ' ') {
+                throw invalid("VERSION", i, offset);
+            }
+            i += 2;
+
+            i = headerField(buffer, i, end, MAX_TIMESTAMP, ParsedFields.TIMESTAMP, fields, "TIMESTAMP", offset);
+            i = headerField(buffer, i, end, MAX_HOSTNAME, ParsedFields.HOSTNAME, fields, "HOSTNAME", offset);
+            i = headerField(buffer, i, end, MAX_APP_NAME, ParsedFields.APP_NAME, fields, "APP-NAME", offset);
+            i = headerField(buffer, i, end, MAX_PROC_ID, ParsedFields.PROC_ID, fields, "PROCID", offset);
+            i = headerField(buffer, i, end, MAX_MSG_ID, ParsedFields.MSG_ID, fields, "MSGID", offset);
+
+            // STRUCTURED-DATA
+            if (i < end && buffer[i] == '-') {
+                i++;
+            }
+            else {
+                int sdStart = i;
+                if (i >= end || buffer[i] != '[') {
+                    throw invalid("STRUCTURED-DATA", i, offset);
+                }
+                while (i < end && buffer[i] == '[') {
+                    i = sdElement(buffer, i, end, offset);
+                }
+                fields.set(ParsedFields.STRUCTURED_DATA, sdStart, i);
+            }
+
+            // MSG
+            if (i < end) {
+                if (buffer[i] != ' ') {
+                    throw invalid("STRUCTURED-DATA", i, offset);
+                }
+                fields.set(ParsedFields.MSG, i + 1, end);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            message.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses a header field and the space after it.
+     *
+     * @return index after the space
+     */
+    private static int headerField(
+            byte[] buffer, int i, int end, int maxLength, int field, ParsedFields fields, String name, int offset
+    ) {
+        int start = i;
+        int limit = Math.min(end, start + maxLength);
+        while (i < limit && isPrintUsAscii(buffer[i])) {
+            i++;
+        }
+        if (i == start || i >= end || buffer[i] != ' ') {
+            throw invalid(name, i, offset);
+        }
+        fields.set(field, start, i);
+        return i + 1;
+    }
+
+    /**
+     * Validates an SD-ELEMENT starting at the {@code '['}.
+     *
+     * @return index after the closing {@code ']'}
+     */
+    private static int sdElement(byte[] buffer, int i, int end, int offset) {
+        int nameStart = i + 1;
+        i = sdName(buffer, nameStart, end);
+        if (i == nameStart || i >= end) {
+            throw invalid("SD-ID", i, offset);
+        }
+        if (!isValidSDID(buffer, nameStart, i)) {
+            throw invalid("SD-ID, not a known registered SD-ID", nameStart, offset);
+        }
+        while (buffer[i] == ' ') {
+            int paramStart = i + 1;
+            i = sdName(buffer, paramStart, end);
+            if (i == paramStart || end - i < 2 || buffer[i] != '=' || buffer[i + 1] != '"') {
+                throw invalid("SD-PARAM", i, offset);
+            }
+            i += 2;
+            while (i < end && buffer[i] != '"') {
+                if (buffer[i] == '\\') {
+                    i++;
+                }
+                i++;
+            }
+            if (i >= end) {
+                throw invalid("PARAM-VALUE", i, offset);
+            }
+            i++;
+            if (i >= end) {
+                throw invalid("SD-ELEMENT", i, offset);
+            }
+        }
+        if (buffer[i] != ']') {
+            throw invalid("SD-ELEMENT", i, offset);
+        }
+        return i + 1;
+    }
+
+    /**
+     * @return index after the last char of the SD-NAME starting at {@code i}
+     */
+    private static int sdName(byte[] buffer, int i, int end) {
+        int limit = Math.min(end, i + MAX_SD_NAME);
+        while (i < limit) {
+            byte b = buffer[i];
+            if (!isPrintUsAscii(b) || b == '=' || b == ']' || b == '"') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isValidSDID(byte[] buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == '@') {
+                return true;
+            }
+        }
+        for (byte[] reserved : RESERVED_SDID) {
+            if (reserved.length == end - start && regionMatches(reserved, buffer, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(byte[] expected, byte[] buffer, int start) {
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPrintUsAscii(byte b) {
+        return b >= 33 && b <= 126;
+    }
+
+    private static IllegalArgumentException invalid(String field, int position, int offset) {
+        return new IllegalArgumentException("Invalid " + field + " at offset " + (position - offset));
+    }
+
+    /**
+     * Decodes SD elements that were validated by the parser.
+     */
+    static void decodeSDElements(byte[] buffer, int start, int end, Set<SDElement> sdElements) {
+        int i = start;
+        while (i < end && buffer[i] == '[') {
+            int nameEnd = sdName(buffer, i + 1, end);
+            SDElement sdElement = SDElement.trustedCompact(new String(buffer, i + 1, nameEnd - i - 1, StandardCharsets.US_ASCII));
+            i = nameEnd;
+            while (buffer[i] == ' ') {
+                int paramEnd = sdName(buffer, i + 1, end);
+                String paramName = new String(buffer, i + 1, paramEnd - i - 1, StandardCharsets.US_ASCII);
+                int valueStart = paramEnd + 2;
+                int valueEnd = valueStart;
+                boolean escaped = false;
+                while (buffer[valueEnd] != '"') {
+                    if (buffer[valueEnd] == '\\') {
+                        escaped = true;
+                        valueEnd++;
+                    }
+                    valueEnd++;
+                }
+                String paramValue;
+                if (escaped) {
+                    paramValue = unescape(buffer, valueStart, valueEnd);
+                }
+                else {
+                    paramValue = new String(buffer, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+                }
+                sdElement.addTrustedSDParam(paramName, paramValue);
+                i = valueEnd + 1;
+            }
+            sdElements.add(sdElement);
+            i++; // ']'
+        }
+    }
+
+    /**
+     * Removes the backslash before {@code '"'}, {@code '\'} and {@code ']'}, other backslashes are kept as required by
+     * <a href="https://tools.ietf.org/html/rfc5424#section-6.3.3">RFC-5424, Section 6.3.3</a>.
+     */
+    private static String unescape(byte[] buffer, int start, int end) {
+        byte[] unescaped = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '\\' && i + 1 < end) {
+                byte next = buffer[i + 1];
+                if (next == '"' || next == '\\' || next == ']') {
+                    b = next;
+                    i++;
+                }
+            }
+            unescaped[length++] = b;
+        }
+        return new String(unescaped, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -17,6 +17,7 @@
 package com.teragrep.rlo_14;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -35,7 +36,7 @@ public class SDElement implements Serializable {
     /**
      * Reserved SD-IDs as documented in <a href="https://www.rfc-editor.org/rfc/rfc5424.txt">RFC-5424</a>
      */
-    private final List<String> RESERVED_SDID = Collections.unmodifiableList(Arrays.asList("timeQuality", "origin", "meta"));
+    private static final List<String> RESERVED_SDID = Collections.unmodifiableList(Arrays.asList("timeQuality", "origin", "meta"));
 
     public SDElement(String sdID) {
         validateSDID(sdID);
@@ -48,8 +49,123 @@ public class SDElement implements Serializable {
         this.sdParams.addAll(Arrays.asList(sdParams));
     }
 
+    private SDElement(SDName sdID, SDParam... sdParams) {
+        this(sdID.getName(), sdID, sdParams);
+    }
+
+    private SDElement(String sdID, SDName sdIDToken, SDParam[] sdParams) {
+        this.sdID = sdID;
+        this.sdIDToken = sdIDToken;
+        this.sdParams.addAll(Arrays.asList(sdParams));
+    }
+
+    /**
+     * Creates an element from an SD-ID validated by {@link SDName#sdID(String)}, without validating it again.
+     */
+    public static SDElement of(SDName sdID, SDParam... sdParams) {
+        if (null == sdID || !sdID.isSdID()) {
+            throw new IllegalArgumentException("SD-ID token required: " + sdID);
+        }
+        return new SDElement(sdID, sdParams);
+    }
+
+    /**
+     * Creates an element without validating the SD-ID, for SD-IDs that were validated before. The SD-ID is validated
+     * only when assertions are enabled with {@code -ea}, to catch misuse in tests.
+     */
+    public static SDElement trusted(String sdID, SDParam... sdParams) {
+        assert isValidSDID(sdID) : "Invalid SD-ID: " + sdID;
+        return new SDElement(sdID, null, sdParams);
+    }
+
+    /**
+     * Same as {@link #compact(String)} without validating the SD-ID, see {@link #trusted(String, SDParam...)}.
+     */
+    static SDElement trustedCompact(String sdID) {
+        SDElement sdElement = trusted(sdID);
+        sdElement.makeCompact();
+        return sdElement;
+    }
+
+    /**
+     * Creates an element that keeps its params in compact form, as parallel arrays of names and values instead of
+     * {@link SDParam} objects. The params are added the same way as for other elements and encoded straight from the
+     * arrays, {@link #getSdParams()} returns a view that creates {@link SDParam} objects on access.
+     */
+    public static SDElement compact(String sdID) {
+        SDElement sdElement = new SDElement(sdID);
+        sdElement.makeCompact();
+        return sdElement;
+    }
+
+    /**
+     * Same as {@link #compact(String)} for an SD-ID validated by {@link SDName#sdID(String)}.
+     */
+    public static SDElement compact(SDName sdID) {
+        SDElement sdElement = of(sdID);
+        sdElement.makeCompact();
+        return sdElement;
+    }
+
+    private void makeCompact() {
+        sdParams = null;
+        paramNames = new String[4];
+        paramValues = new String[4];
+    }
+
     private String sdID;
 
+    /**
+     * Token of {@link #sdID} if the element was created from one, {@code null} otherwise or after deserialization
+     */
+    private transient SDName sdIDToken;
+
+    SDName getSdIDToken() {
+        return sdIDToken;
+    }
+
+    /**
+     * Whole element as encoded, {@code [SD-ID PARAM-NAME="PARAM-VALUE" ...]}, set only for frozen elements
+     */
+    private transient PreEncoded encoded;
+
+    private boolean frozen;
+
+    PreEncoded getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Returns an immutable copy of this element, or the element itself if it is already frozen. The copy is encoded
+     * once here and copied as a single block into every message it is added to.
+     *
+     * @return the frozen element
+     */
+    public SDElement freeze() {
+        if (frozen) {
+            return this;
+        }
+        List<SDParam> params = new ArrayList<>(paramCount());
+        for (int i = 0; i < paramCount(); i++) {
+            params.add(param(i));
+        }
+        SDElement copy = new SDElement(sdID);
+        copy.sdIDToken = sdIDToken;
+        copy.sdParams = Collections.unmodifiableList(params);
+        copy.frozen = true;
+        StringBuilder sb = new StringBuilder();
+        SyslogMessage.writeSDElement(copy, new StringBuilderOutput(sb));
+        copy.encoded = new PreEncoded(sb.toString());
+        return copy;
+    }
+
+    /**
+     * @return {@code true} if this element was created with {@link #freeze()} and can not be modified
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     /**
      * Get the value of sdID
      *
@@ -59,14 +175,128 @@ public class SDElement implements Serializable {
         return sdID;
     }
 
+    /**
+     * Params of the element, {@code null} when they are kept in compact form
+     */
     private List<SDParam> sdParams = new ArrayList<>();
 
+    /**
+     * Compact form of the params, see {@link #compact(String)}
+     */
+    private String[] paramNames;
+    private String[] paramValues;
+    private transient SDName[] paramNameTokens;
+    private int compactCount;
+
+    /**
+     * @return number of params
+     */
+    public int paramCount() {
+        return sdParams == null ? compactCount : sdParams.size();
+    }
+
+    /**
+     * @return PARAM-NAME of the param at {@code index}, without creating an {@link SDParam} for compact elements
+     */
+    public String paramName(int index) {
+        if (sdParams == null) {
+            checkIndex(index);
+            return paramNames[index];
+        }
+        return sdParams.get(index).getParamName();
+    }
+
+    /**
+     * @return PARAM-VALUE of the param at {@code index}, without creating an {@link SDParam} for compact elements
+     */
+    public String paramValue(int index) {
+        if (sdParams == null) {
+            checkIndex(index);
+            return paramValues[index];
+        }
+        return sdParams.get(index).getParamValue();
+    }
+
+    SDName paramNameToken(int index) {
+        if (sdParams == null) {
+            return paramNameTokens == null ? null : paramNameTokens[index];
+        }
+        return sdParams.get(index).getParamNameToken();
+    }
+
+    /**
+     * @return a new param with the name and value of the param at {@code index}
+     */
+    private SDParam param(int index) {
+        return SDParam.validated(paramName(index), paramNameToken(index), paramValue(index));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= compactCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + compactCount);
+        }
+    }
+
+    private void addCompact(String paramName, SDName paramNameToken, String paramValue) {
+        if (compactCount == paramNames.length) {
+            paramNames = Arrays.copyOf(paramNames, compactCount * 2);
+            paramValues = Arrays.copyOf(paramValues, compactCount * 2);
+            if (paramNameTokens != null) {
+                paramNameTokens = Arrays.copyOf(paramNameTokens, compactCount * 2);
+            }
+        }
+        if (paramNameToken != null && paramNameTokens == null) {
+            paramNameTokens = new SDName[paramNames.length];
+        }
+        paramNames[compactCount] = paramName;
+        paramValues[compactCount] = paramValue;
+        if (paramNameTokens != null) {
+            paramNameTokens[compactCount] = paramNameToken;
+        }
+        compactCount++;
+    }
+
+    /**
+     * View of the compact params. Elements are created on access, so changing them does not change the element, but
+     * params can be added through the view.
+     */
+    private final class CompactParams extends AbstractList<SDParam> {
+        @Override
+        public SDParam get(int index) {
+            return param(index);
+        }
+
+        @Override
+        public int size() {
+            return compactCount;
+        }
+
+        @Override
+        public void add(int index, SDParam sdParam) {
+            if (index != compactCount) {
+                throw new UnsupportedOperationException("Params can only be added to the end of a compact element");
+            }
+            addSDParam(sdParam);
+        }
+    }
+
     /**
      * Get the value of sdParams
      *
      * @return the value of sdParams
      */
     public List<SDParam> getSdParams() {
+        if (frozen) {
+            // copies, so that the params of a frozen element can not be modified
+            List<SDParam> params = new ArrayList<>(sdParams.size());
+            for (SDParam sdParam : sdParams) {
+                params.add(sdParam.copy());
+            }
+            return Collections.unmodifiableList(params);
+        }
+        if (sdParams == null) {
+            return new CompactParams();
+        }
         return sdParams;
     }
 
@@ -79,6 +309,13 @@ public class SDElement implements Serializable {
         if (null == sdParams) {
             throw new IllegalArgumentException("sdParams list cannot be null");
         }
+        checkNotFrozen();
+        if (this.sdParams == null) {
+            for (SDParam sdParam : sdParams) {
+                addSDParam(sdParam);
+            }
+            return;
+        }
         this.sdParams.addAll(sdParams);
     }
 
@@ -89,10 +326,34 @@ public class SDElement implements Serializable {
      * @return
      */
     public SDElement addSDParam(String paramName, String paramValue) {
+        if (sdParams == null) {
+            SDParam.validateParamName(paramName);
+            addCompact(paramName, null, paramValue);
+            return this;
+        }
         return addSDParam(new SDParam(paramName, paramValue));
     }
     
+    /**
+     * Adds a param without validating the PARAM-NAME, see {@link SDParam#trusted(String, String)}.
+     */
+    public SDElement addTrustedSDParam(String paramName, String paramValue) {
+        checkNotFrozen();
+        if (sdParams == null) {
+            assert SDParam.isValidParamName(paramName) : "Invalid PARAM-NAME: " + paramName;
+            addCompact(paramName, null, paramValue);
+            return this;
+        }
+        this.sdParams.add(SDParam.trusted(paramName, paramValue));
+        return this;
+    }
+
     public SDElement addSDParam(SDParam sdParam) {
+        checkNotFrozen();
+        if (sdParams == null) {
+            addCompact(sdParam.getParamName(), sdParam.getParamNameToken(), sdParam.getParamValue());
+            return this;
+        }
         this.sdParams.add(sdParam);
         return this;
     }
@@ -119,7 +380,23 @@ public class SDElement implements Serializable {
         return Objects.equals(this.sdID, other.sdID);
     }
     
-    private void validateSDID(String sdName) {
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("SD-ELEMENT is frozen: " + sdID);
+        }
+    }
+
+    static boolean isValidSDID(String sdName) {
+        try {
+            validateSDID(sdName);
+            return true;
+        }
+        catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static void validateSDID(String sdName) {
         if (null == sdName) {
             throw new IllegalArgumentException("SD-ID cannot be null");
         }
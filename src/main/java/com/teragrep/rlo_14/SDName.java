@@ -0,0 +1,98 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A validated SD-ID or PARAM-NAME with its encoded form.
+ *
+ * {@link #sdID(String)} and {@link #paramName(String)} validate a name once and return the same canonical instance for
+ * every later call with that name, so {@link SDElement} and {@link SDParam} built from it skip validation and the
+ * encoder copies the name as a single block. Up to {@value #MAX_INTERNED} names of each kind are kept, names beyond
+ * that are validated on every call.
+ *
+ * Instances are immutable and can be shared by all threads.
+ */
+public final class SDName {
+    static final int MAX_INTERNED = 4096;
+
+    private static final ConcurrentHashMap<String, SDName> SD_IDS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, SDName> PARAM_NAMES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final boolean sdID;
+    final PreEncoded encoded;
+
+    private SDName(String name, boolean sdID) {
+        this.name = name;
+        this.sdID = sdID;
+        this.encoded = new PreEncoded(name);
+    }
+
+    /**
+     * @return the canonical SD-ID token for {@code sdID}
+     * @throws IllegalArgumentException if {@code sdID} is not a valid SD-ID
+     */
+    public static SDName sdID(String sdID) {
+        SDName token = sdID == null ? null : SD_IDS.get(sdID);
+        if (token == null) {
+            SDElement.validateSDID(sdID);
+            token = intern(SD_IDS, new SDName(sdID, true));
+        }
+        return token;
+    }
+
+    /**
+     * @return the canonical PARAM-NAME token for {@code paramName}
+     * @throws IllegalArgumentException if {@code paramName} is not a valid PARAM-NAME
+     */
+    public static SDName paramName(String paramName) {
+        SDName token = paramName == null ? null : PARAM_NAMES.get(paramName);
+        if (token == null) {
+            SDParam.validateParamName(paramName);
+            token = intern(PARAM_NAMES, new SDName(paramName, false));
+        }
+        return token;
+    }
+
+    private static SDName intern(ConcurrentHashMap<String, SDName> names, SDName token) {
+        if (names.size() >= MAX_INTERNED) {
+            return token;
+        }
+        SDName existing = names.putIfAbsent(token.name, token);
+        return existing == null ? token : existing;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return {@code true} for an SD-ID token, {@code false} for a PARAM-NAME token
+     */
+    public boolean isSdID() {
+        return sdID;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
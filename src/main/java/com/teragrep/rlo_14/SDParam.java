@@ -34,8 +34,60 @@ public class SDParam implements Serializable {
         this.paramValue = paramValue;
     }
     
+    private SDParam(SDName paramName, String paramValue) {
+        this.paramName = paramName == null ? null : paramName.getName();
+        this.paramNameToken = paramName;
+        this.paramValue = paramValue;
+    }
+
+    /**
+     * Creates a param from a PARAM-NAME validated by {@link SDName#paramName(String)}, without validating it again.
+     */
+    public static SDParam of(SDName paramName, String paramValue) {
+        if (null == paramName || paramName.isSdID()) {
+            throw new IllegalArgumentException("PARAM-NAME token required: " + paramName);
+        }
+        return new SDParam(paramName, paramValue);
+    }
+
+    /**
+     * Creates a param without validating the PARAM-NAME, for names that were validated before. The name is validated
+     * only when assertions are enabled with {@code -ea}, to catch misuse in tests.
+     */
+    public static SDParam trusted(String paramName, String paramValue) {
+        assert isValidParamName(paramName) : "Invalid PARAM-NAME: " + paramName;
+        return validated(paramName, null, paramValue);
+    }
+
     private String paramName;
 
+    /**
+     * Token of {@link #paramName} if the param was created from one, {@code null} otherwise or after deserialization
+     */
+    private transient SDName paramNameToken;
+
+    SDName getParamNameToken() {
+        return paramNameToken;
+    }
+
+    /**
+     * @return a copy of this param, without validating the name again
+     */
+    SDParam copy() {
+        return validated(paramName, paramNameToken, paramValue);
+    }
+
+    /**
+     * Creates a param from a name that has already been validated.
+     *
+     * @param paramNameToken token of {@code paramName} or {@code null}
+     */
+    static SDParam validated(String paramName, SDName paramNameToken, String paramValue) {
+        SDParam sdParam = new SDParam(paramNameToken, paramValue);
+        sdParam.paramName = paramName;
+        return sdParam;
+    }
+
     /**
      * Get the value of paramName
      *
@@ -53,6 +105,7 @@ public class SDParam implements Serializable {
     public void setParamName(String paramName) {
         validateParamName(paramName);
         this.paramName = paramName;
+        this.paramNameToken = null;
     }
 
     private String paramValue;
@@ -75,7 +128,17 @@ public class SDParam implements Serializable {
         this.paramValue = paramValue;
     }
 
-    private void validateParamName(String sdName) {
+    static boolean isValidParamName(String sdName) {
+        try {
+            validateParamName(sdName);
+            return true;
+        }
+        catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static void validateParamName(String sdName) {
         if (null == sdName) {
             throw new IllegalArgumentException("PARAM-NAME cannot be null");
         }
@@ -0,0 +1,229 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Appends messages to memory-mapped segment files in a directory, for spooling messages locally.
+ *
+ * Every segment file starts with a header holding the committed offset, followed by messages framed with the
+ * octet-counting of <a href="https://tools.ietf.org/html/rfc6587#section-3.4.1">RFC-6587, Section 3.4.1</a>. A message
+ * is encoded straight into the mapped segment, and the committed offset is moved past it only once the whole frame is
+ * written, so a segment left by a crashed process is read up to its last complete message. When a message does not fit
+ * in the current segment, a new segment with the next sequence number is started.
+ *
+ * The mapped pages are written to the disk by the operating system, {@link #flush()} forces them to the disk for
+ * durability against a crash of the operating system.
+ *
+ * An existing directory is continued from the committed offset of its last segment. An instance must not be used by
+ * several threads at the same time, and a directory must have a single appender. Segments are read with
+ * {@link SegmentFileReader}.
+ */
+public final class SegmentFileAppender implements Closeable {
+    static final String SUFFIX = ".seg";
+    static final int MAGIC = 0x524C4F31; // "RLO1"
+    static final int COMMITTED_OFFSET = 8;
+    static final int HEADER_SIZE = 16;
+
+    private final Path directory;
+    private final int segmentSize;
+    private long sequence;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    /**
+     * Digits reserved for the next length prefix, taken from the previous message
+     */
+    private int reservedDigits = 3;
+
+    /**
+     * @param segmentSize size of each segment file in bytes, a message must fit in an empty segment
+     */
+    public SegmentFileAppender(Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be larger than " + HEADER_SIZE + ": " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            open(0, true);
+        }
+        else {
+            Path last = segments.get(segments.size() - 1);
+            open(sequence(last), false);
+        }
+    }
+
+    /**
+     * Encodes and appends an octet-counted frame of {@code message}, starting a new segment if it does not fit in the
+     * current one.
+     *
+     * @throws IllegalArgumentException if a mandatory field of the message is missing or the message does not fit in
+     * an empty segment
+     */
+    public void append(SyslogMessage message) throws IOException {
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        int length = tryAppend(message);
+        if (length < 0) {
+            roll();
+            length = tryAppend(message);
+            if (length < 0) {
+                throw new IllegalArgumentException("Message does not fit in a segment of " + segmentSize + " bytes");
+            }
+        }
+        EncodeMetrics.encoded(listener, message, length, start);
+    }
+
+    /**
+     * @return length of the appended message, or -1 if it does not fit in the current segment
+     */
+    private int tryAppend(SyslogMessage message) {
+        int frameStart = position;
+        int messageStart = frameStart + reservedDigits + 1;
+        if (messageStart > segmentSize) {
+            return -1;
+        }
+        int messageEnd;
+        try {
+            ByteBufferOutput output = new ByteBufferOutput(segment, messageStart, segmentSize);
+            message.writeRfc5424(output);
+            messageEnd = output.position();
+        }
+        catch (BufferOverflowException e) {
+            return -1;
+        }
+
+        int frameEnd = OctetCounting.completeFrame(segment, frameStart, messageStart, messageEnd, segmentSize);
+        if (frameEnd < 0) {
+            return -1;
+        }
+        int length = messageEnd - messageStart;
+        reservedDigits = OctetCounting.digits(length);
+        position = frameEnd;
+        segment.putLong(COMMITTED_OFFSET, position);
+        return length;
+    }
+
+    /**
+     * @return the offset in the current segment after the last committed message
+     */
+    public int committedOffset() {
+        return position;
+    }
+
+    /**
+     * @return the sequence number of the current segment
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Forces the current segment to the disk.
+     */
+    public void flush() {
+        segment.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            segment.force();
+            channel.close();
+            channel = null;
+            segment = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        close();
+        open(sequence + 1, true);
+    }
+
+    private void open(long sequence, boolean create) throws IOException {
+        Path path = directory.resolve(name(sequence));
+        if (create) {
+            channel = FileChannel.open(
+                    path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE
+            );
+        }
+        else {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        // the segment size may have changed, an existing segment keeps its own size
+        long size = create ? segmentSize : Math.max(channel.size(), HEADER_SIZE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.sequence = sequence;
+        if (create) {
+            segment.putInt(0, MAGIC);
+            segment.putLong(COMMITTED_OFFSET, HEADER_SIZE);
+            position = HEADER_SIZE;
+        }
+        else {
+            long committed = segment.getLong(COMMITTED_OFFSET);
+            if (segment.getInt(0) != MAGIC || committed < HEADER_SIZE || committed > size) {
+                channel.close();
+                throw new IOException("Not a valid segment file: " + path);
+            }
+            position = (int) committed;
+            if (size != segmentSize) {
+                // continue in a new segment of the configured size
+                roll();
+            }
+        }
+    }
+
+    static String name(long sequence) {
+        return String.format("%020d", sequence) + SUFFIX;
+    }
+
+    static long sequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * @return segment files of {@code directory} in sequence order
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
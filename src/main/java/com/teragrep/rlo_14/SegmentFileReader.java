@@ -0,0 +1,114 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Replays the messages written by {@link SegmentFileAppender}, segment by segment in sequence order, up to the
+ * committed offset of each segment.
+ *
+ * The segments are mapped read-only and the messages are returned as views of the mapping, without copying. An
+ * instance must not be used by several threads at the same time.
+ */
+public final class SegmentFileReader implements Closeable {
+    private final List<Path> segments;
+    private int next;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private ByteBuffer view;
+    private int position;
+    private int committed;
+
+    /**
+     * Lists the segments of {@code directory}. Segments created after this are not read.
+     */
+    public SegmentFileReader(Path directory) throws IOException {
+        this.segments = SegmentFileAppender.segments(directory);
+    }
+
+    /**
+     * Returns the next message as a read-only view of the mapped segment, from the start of the message to its end.
+     * The same view is reused and valid until the next call.
+     *
+     * @return the next message or {@code null} if all segments have been read
+     * @throws IOException if a segment is not valid
+     */
+    public ByteBuffer next() throws IOException {
+        while (segment == null || position >= committed) {
+            if (next >= segments.size()) {
+                close();
+                return null;
+            }
+            open(segments.get(next++));
+        }
+        int length = OctetCounting.parseLength(segment, position, committed);
+        if (length < 0) {
+            throw new IOException("Invalid MSG-LEN at offset " + position + " of " + segments.get(next - 1));
+        }
+        int start = position + OctetCounting.digits(length) + 1;
+        position = start + length;
+        ((Buffer) view).limit(position);
+        ((Buffer) view).position(start);
+        return view;
+    }
+
+    /**
+     * @return the sequence number of the segment of the last returned message
+     */
+    public long sequence() {
+        return SegmentFileAppender.sequence(segments.get(next - 1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            segment = null;
+            view = null;
+        }
+    }
+
+    private void open(Path path) throws IOException {
+        close();
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < SegmentFileAppender.HEADER_SIZE) {
+            throw new IOException("Not a valid segment file: " + path);
+        }
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        long committedOffset = segment.getLong(SegmentFileAppender.COMMITTED_OFFSET);
+        if (segment.getInt(0) != SegmentFileAppender.MAGIC
+                || committedOffset < SegmentFileAppender.HEADER_SIZE || committedOffset > size) {
+            throw new IOException("Not a valid segment file: " + path);
+        }
+        committed = (int) committedOffset;
+        position = SegmentFileAppender.HEADER_SIZE;
+        view = segment.asReadOnlyBuffer();
+    }
+}
@@ -16,9 +16,8 @@
  */
 package com.teragrep.rlo_14;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Syslog severity as defined in <a href="https://tools.ietf.org/html/rfc5424">RFC 5424 - The Syslog Protocol</a>.
@@ -60,14 +59,13 @@ public enum Severity {
      */
     DEBUG(7, "DEBUG");
 
-    // mapping
-    private final static Map<String, Severity> severityFromLabel = new HashMap<>();
-    private final static Map<Integer, Severity> severityFromNumericalCode = new HashMap<>();
+    // mapping, numerical codes are dense so the code is the index
+    private final static Severity[] severityValues = values();
+    private final static Severity[] severityFromNumericalCode = new Severity[severityValues.length];
 
     static {
-        for (Severity severity : Severity.values()) {
-            severityFromLabel.put(severity.label, severity);
-            severityFromNumericalCode.put(severity.numericalCode, severity);
+        for (Severity severity : severityValues) {
+            severityFromNumericalCode[severity.numericalCode] = severity;
         }
     }
 
@@ -85,27 +83,57 @@ public enum Severity {
      * @throws IllegalArgumentException the given numericalCode is not a valid Syslog severity numerical code
      */
     public static Severity fromNumericalCode(int numericalCode) throws IllegalArgumentException {
-        Severity severity = severityFromNumericalCode.get(numericalCode);
-        if (severity == null) {
+        if (numericalCode < 0 || numericalCode >= severityFromNumericalCode.length) {
             throw new IllegalArgumentException("Invalid severity '" + numericalCode + "'");
         }
-        return severity;
+        return severityFromNumericalCode[numericalCode];
     }
 
     /**
-     * @param label Syslog severity textual code. {@code null} or empty returns {@code null}
+     * @param label Syslog severity textual code, matched case-insensitively. {@code null} or empty returns {@code null}
      * @return Syslog severity, {@code null} if given value is {@code null}
      * @throws IllegalArgumentException the given value is not a valid Syslog severity textual code
      */
     public static Severity fromLabel(String label) throws IllegalArgumentException {
-        if (label == null || label.isEmpty())
+        return fromLabel((CharSequence) label);
+    }
+
+    /**
+     * @param label Syslog severity textual code, matched case-insensitively. {@code null} or empty returns {@code null}
+     * @return Syslog severity, {@code null} if given value is {@code null}
+     * @throws IllegalArgumentException the given value is not a valid Syslog severity textual code
+     */
+    public static Severity fromLabel(CharSequence label) throws IllegalArgumentException {
+        if (label == null || label.length() == 0)
             return null;
 
-        Severity severity = severityFromLabel.get(label);
-        if (severity == null) {
-            throw new IllegalArgumentException("Invalid severity '" + label + "'");
+        for (Severity severity : severityValues) {
+            if (Labels.matches(severity.label, label)) {
+                return severity;
+            }
         }
-        return severity;
+        throw new IllegalArgumentException("Invalid severity '" + label + "'");
+    }
+
+    /**
+     * @param buffer US-ASCII or UTF-8 encoded Syslog severity textual code, matched case-insensitively
+     * @param offset start of the textual code in {@code buffer}
+     * @param length length of the textual code, empty returns {@code null}
+     * @return Syslog severity, {@code null} if given length is zero
+     * @throws IllegalArgumentException the given range is not a valid Syslog severity textual code
+     */
+    public static Severity fromLabel(byte[] buffer, int offset, int length) throws IllegalArgumentException {
+        if (length == 0)
+            return null;
+
+        for (Severity severity : severityValues) {
+            if (Labels.matches(severity.label, buffer, offset, length)) {
+                return severity;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Invalid severity '" + new String(buffer, offset, length, StandardCharsets.UTF_8) + "'"
+        );
     }
 
     /**
@@ -122,6 +150,13 @@ public enum Severity {
         return label;
     }
 
+    /**
+     * @return priority of this severity with the given facility
+     */
+    public Priority priority(Facility facility) {
+        return Priority.of(facility, this);
+    }
+
     /**
      * Compare on {@link Severity#numericalCode()}
      */
@@ -0,0 +1,51 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the message as chars into a {@link StringBuilder}.
+ */
+final class StringBuilderOutput extends Rfc5424Output {
+    private final StringBuilder out;
+
+    StringBuilderOutput(StringBuilder out) {
+        this.out = out;
+    }
+
+    @Override
+    void write(char c) {
+        out.append(c);
+    }
+
+    @Override
+    void write(CharSequence s, int start, int end) {
+        out.append(s, start, end);
+    }
+
+    @Override
+    void write(PreEncoded preEncoded) {
+        writeText(preEncoded.chars);
+    }
+
+    @Override
+    void writeUtf8(byte[] bytes, int offset, int length) {
+        writeText(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes framed messages into one contiguous, growable buffer, so the whole batch can be sent with a single write.
+ *
+ * With {@link Framing#OCTET_COUNTING}, the default, each message is encoded once directly after space reserved for
+ * its length prefix. The prefix is written after the message, and the message is moved only when its length has a
+ * different number of digits than reserved.
+ *
+ * With {@link Framing#NON_TRANSPARENT} each message is followed by an LF trailer. LF and NUL inside the message are
+ * replaced with a space while it is encoded, so the batch needs no second scan.
+ *
+ * An instance is meant to be reused with {@link #clear()} and must not be used by several threads at the same time.
+ */
+public final class SyslogBatchEncoder {
+    private final Framing framing;
+    private byte[] buffer;
+    private int size;
+    private int count;
+    /**
+     * Digits reserved for the next length prefix, taken from the previous message
+     */
+    private int reservedDigits = 3;
+    private final ByteArrayOutput output;
+
+    public SyslogBatchEncoder() {
+        this(8192, Framing.OCTET_COUNTING);
+    }
+
+    public SyslogBatchEncoder(Framing framing) {
+        this(8192, framing);
+    }
+
+    /**
+     * @param initialCapacity initial size of the buffer in bytes, the buffer grows as needed
+     */
+    public SyslogBatchEncoder(int initialCapacity) {
+        this(initialCapacity, Framing.OCTET_COUNTING);
+    }
+
+    /**
+     * @param initialCapacity initial size of the buffer in bytes, the buffer grows as needed
+     */
+    public SyslogBatchEncoder(int initialCapacity, Framing framing) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be positive: " + initialCapacity);
+        }
+        if (framing == null) {
+            throw new IllegalArgumentException("Framing cannot be null");
+        }
+        this.framing = framing;
+        this.buffer = new byte[initialCapacity];
+        this.output = new ByteArrayOutput(buffer, 0, buffer.length);
+        this.output.substituteLineBreaks = framing == Framing.NON_TRANSPARENT;
+    }
+
+    public Framing getFraming() {
+        return framing;
+    }
+
+    /**
+     * Appends a frame of {@code message} to the batch. The batch is left unchanged if the message can not be encoded.
+     *
+     * @throws IllegalArgumentException if a mandatory field of the message is missing
+     */
+    public SyslogBatchEncoder add(SyslogMessage message) {
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        if (framing == Framing.NON_TRANSPARENT) {
+            int messageEnd = encode(message, size);
+            EncodeMetrics.encoded(listener, message, messageEnd - size, start);
+            if (messageEnd == buffer.length) {
+                grow(messageEnd + 1, messageEnd);
+            }
+            buffer[messageEnd] = '\n';
+            size = messageEnd + 1;
+            count++;
+            return this;
+        }
+
+        int frameStart = size;
+        int messageStart = frameStart + reservedDigits + 1;
+        int messageEnd = encode(message, messageStart);
+        int length = messageEnd - messageStart;
+        EncodeMetrics.encoded(listener, message, length, start);
+        int frameEnd = OctetCounting.completeFrame(buffer, frameStart, messageStart, messageEnd, buffer.length);
+        if (frameEnd < 0) {
+            grow(messageEnd + OctetCounting.MAX_DIGITS, messageEnd);
+            frameEnd = OctetCounting.completeFrame(buffer, frameStart, messageStart, messageEnd, buffer.length);
+        }
+        reservedDigits = OctetCounting.digits(length);
+        size = frameEnd;
+        count++;
+        return this;
+    }
+
+    /**
+     * Encodes {@code message} at {@code position}, growing the buffer once if it does not fit.
+     *
+     * @return position after the message
+     */
+    private int encode(SyslogMessage message, int position) {
+        while (true) {
+            if (position > buffer.length) {
+                grow(position, size);
+            }
+            try {
+                output.wrap(buffer, position, buffer.length);
+                message.writeRfc5424(output);
+                return output.position();
+            }
+            catch (BufferOverflowException e) {
+                // grows at least to the exact length instead of doubling until the message fits
+                grow(position + message.rfc5424Utf8Length(), size);
+            }
+        }
+    }
+
+    /**
+     * Appends frames of all {@code messages} to the batch.
+     *
+     * @throws IllegalArgumentException if a mandatory field of a message is missing, the messages before it are kept
+     */
+    public SyslogBatchEncoder addAll(Iterable<? extends SyslogMessage> messages) {
+        for (SyslogMessage message : messages) {
+            add(message);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the frames of {@code batch}, which must have the same framing, copying its bytes without encoding
+     * again.
+     */
+    void addBatch(SyslogBatchEncoder batch) {
+        if (size + batch.size > buffer.length) {
+            grow(size + batch.size, size);
+        }
+        System.arraycopy(batch.buffer, 0, buffer, size, batch.size);
+        size += batch.size;
+        count += batch.count;
+    }
+
+    /**
+     * @return number of messages in the batch
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return number of bytes in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the internal buffer, the batch is in its first {@link #size()} bytes. Valid until the next
+     * {@link #add(SyslogMessage)}, which may replace the buffer.
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * @return a buffer over the batch sharing the internal array, ready for a channel write
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, size);
+    }
+
+    /**
+     * @return a copy of the batch
+     */
+    public byte[] toByteArray() {
+        byte[] copy = new byte[size];
+        System.arraycopy(buffer, 0, copy, 0, size);
+        return copy;
+    }
+
+    /**
+     * Writes the whole batch with a single write.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Empties the batch, keeping the buffer.
+     */
+    public void clear() {
+        size = 0;
+        count = 0;
+    }
+
+    /**
+     * Drops the messages added after the batch had {@code size} bytes and {@code count} messages.
+     */
+    void truncate(int size, int count) {
+        this.size = size;
+        this.count = count;
+    }
+
+    /**
+     * Replaces the buffer with a larger one, keeping its first {@code used} bytes.
+     */
+    private void grow(int minCapacity, int used) {
+        int capacity = Math.max(minCapacity, buffer.length * 2);
+        if (capacity < 0) {
+            capacity = Integer.MAX_VALUE - 8;
+            if (capacity < minCapacity) {
+                throw new OutOfMemoryError("Batch too large");
+            }
+        }
+        byte[] grown = new byte[capacity];
+        System.arraycopy(buffer, 0, grown, 0, used);
+        buffer = grown;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.IOException;
+
+/**
+ * Receives the batches encoded by {@link AsyncSyslogEncoder}.
+ */
+@FunctionalInterface
+public interface SyslogBatchSink {
+    /**
+     * Called by a consumer thread for every encoded batch. The batch is valid only during the call and reused by the
+     * consumer afterwards. With several consumer threads the sink is called concurrently.
+     */
+    void write(SyslogBatchEncoder batch) throws IOException;
+}
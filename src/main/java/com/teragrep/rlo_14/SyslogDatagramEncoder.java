@@ -0,0 +1,111 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Encodes messages into datagrams of at most a fixed number of bytes, as needed for syslog over UDP.
+ *
+ * The header and the structured data are always written in full. The msg is cut at the last whole UTF-8 code point
+ * that fits, while it is encoded, so a message is encoded only once whether it fits or not. {@link #isTruncated()}
+ * tells if the last message was cut.
+ *
+ * <a href="https://tools.ietf.org/html/rfc5426#section-3.2">RFC-5426</a> requires receivers to accept datagrams of
+ * {@link #IPV4_MINIMUM} bytes over IPv4 and {@link #IPV6_MINIMUM} bytes over IPv6, and recommends accepting
+ * {@link #RECOMMENDED} bytes.
+ *
+ * An instance reuses one buffer for every datagram and must not be used by several threads at the same time.
+ */
+public final class SyslogDatagramEncoder {
+    public static final int IPV4_MINIMUM = 480;
+    public static final int IPV6_MINIMUM = 1180;
+    public static final int RECOMMENDED = 2048;
+
+    private final byte[] buffer;
+    private final ByteBuffer datagram;
+    private final ByteArrayOutput output;
+    private boolean truncated;
+
+    /**
+     * @param maxSize maximum size of a datagram in bytes
+     */
+    public SyslogDatagramEncoder(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maxSize);
+        }
+        this.buffer = new byte[maxSize];
+        this.datagram = ByteBuffer.wrap(buffer);
+        this.output = new ByteArrayOutput(buffer, 0, maxSize);
+    }
+
+    public int getMaxSize() {
+        return buffer.length;
+    }
+
+    /**
+     * Encodes {@code message}, truncating its msg to fit.
+     *
+     * @return the datagram, valid until the next encode
+     * @throws IllegalArgumentException if a mandatory field of the message is missing or the header and the
+     * structured data alone do not fit
+     */
+    public ByteBuffer encode(SyslogMessage message) {
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        output.wrap(buffer, 0, buffer.length);
+        try {
+            message.writeHeader(output);
+            message.writeStructuredData(output);
+        }
+        catch (BufferOverflowException e) {
+            throw new IllegalArgumentException(
+                    "Header and structured data do not fit in " + buffer.length + " bytes"
+            );
+        }
+        truncated = message.writeMsgTruncated(output);
+        ((Buffer) datagram).limit(output.position());
+        ((Buffer) datagram).position(0);
+        EncodeMetrics.encoded(listener, message, output.position(), start);
+        return datagram;
+    }
+
+    /**
+     * @return {@code true} if the msg of the last encoded message was cut to fit
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Encodes {@code message} and sends it as one datagram.
+     *
+     * @return number of bytes sent, zero if a non-blocking channel had no room for the datagram
+     * @throws IllegalArgumentException if a mandatory field of the message is missing or the header and the
+     * structured data alone do not fit
+     */
+    public int send(SyslogMessage message, DatagramChannel channel, SocketAddress target) throws IOException {
+        return channel.send(encode(message), target);
+    }
+}
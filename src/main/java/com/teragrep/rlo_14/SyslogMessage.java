@@ -16,8 +16,14 @@
  */
 package com.teragrep.rlo_14;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 /**
@@ -25,6 +31,10 @@ import java.util.*;
  *
  * Also compatible with <a href="http://tools.ietf.org/html/rfc3164">RFC-3164: The BSD syslog Protocol</a>,
  *
+ * Instances can be reused with {@link #reset()}, which keeps the internal collections. Encoding only reads the message,
+ * so an instance that is not modified can be encoded by several threads at the same time, except for messages from
+ * {@link SyslogMessagePool}, which reuse scratch buffers between encodings.
+ *
  * @author <a href="mailto:cleclerc@cloudbees.com">Cyrille Le Clerc</a>
  * @author <a href="mailto:9@teragrep.com">StrongestNumber9</a>
  */
@@ -34,30 +44,66 @@ public class SyslogMessage {
 
     private Facility facility;
     private Severity severity;
+    /**
+     * {@code null} when the timestamp is kept as {@link #timestampSeconds} and {@link #timestampNanos}, which are
+     * rendered only when the message is encoded
+     */
     private String timestamp = NILVALUE;
+    private long timestampSeconds;
+    private int timestampNanos;
     private String hostname = NILVALUE;
     private String appName = NILVALUE;
     private String procId = NILVALUE;
     private String msgId = NILVALUE;
     private Set<SDElement> sdElements;
-    private static final SimpleDateFormat rfc3339Formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-
     /**
-     * Use a {@link java.io.CharArrayWriter} instead of a {@link String}  or a {@code char[]} because middlewares like
-     * Apache Tomcat use {@code CharArrayWriter} and it's convenient for pooling objects.
+     * SD element set created by this message, reused after {@link #reset()} unlike a set given to
+     * {@link #setSDElements(Set)}
      */
+    private Set<SDElement> ownSDElements;
+    private SyslogMessageTemplate template;
+
     private String msg;
+    /**
+     * Msg set as a {@link CharSequence} other than a {@link String}, encoded straight from the caller's chars
+     */
+    private CharSequence msgChars;
+    /**
+     * Msg set as UTF-8 bytes, copied to byte outputs as they are
+     */
+    private byte[] msgBytes;
+    private int msgBytesOffset;
+    private int msgBytesLength;
+    /**
+     * Copy of a msg set from a buffer without an accessible array, reused by the next one
+     */
+    private byte[] msgBytesCopy;
+
+    /**
+     * Set for messages from {@link SyslogMessagePool}, which are used by one thread at a time and reuse the scratch
+     * buffers between encodings and over {@link #reset()}. Other messages allocate their buffers per encoding.
+     */
+    private boolean pooled;
+    private StringBuilder scratchBuilder;
+    private StringBuilderOutput scratchBuilderOutput;
+    private ByteArrayOutput scratchByteArrayOutput;
+
+    /**
+     * Fields of a parsed message that have not been decoded yet, see {@link Rfc5424Parser}
+     */
+    private ParsedFields parsedFields;
 
     public Facility getFacility() {
         return facility;
     }
 
     public void setFacility(Facility facility) {
+        detachTemplate();
         this.facility = facility;
     }
 
     public SyslogMessage withFacility(Facility facility) {
-        this.facility = facility;
+        setFacility(facility);
         return this;
     }
 
@@ -66,32 +112,96 @@ public class SyslogMessage {
     }
 
     public void setSeverity(Severity severity) {
+        detachTemplate();
         this.severity = severity;
     }
 
     public SyslogMessage withSeverity(Severity severity) {
-        this.severity = severity;
+        setSeverity(severity);
+        return this;
+    }
+
+    /**
+     * @return priority of the message, {@code null} if facility or severity is not set
+     */
+    public Priority getPriority() {
+        if (facility == null || severity == null) {
+            return null;
+        }
+        return Priority.of(facility, severity);
+    }
+
+    public void setPriority(Priority priority) {
+        detachTemplate();
+        this.facility = priority.facility();
+        this.severity = priority.severity();
+    }
+
+    public SyslogMessage withPriority(Priority priority) {
+        setPriority(priority);
         return this;
     }
 
     public String getTimestamp() {
+        if (isPending(ParsedFields.TIMESTAMP)) {
+            timestamp = parsedFields.decode(ParsedFields.TIMESTAMP);
+        }
+        if (timestamp == null) {
+            return TimestampRenderer.INSTANCE.toString(timestampSeconds, timestampNanos);
+        }
         return timestamp;
     }
 
+    /**
+     * @param timestamp milliseconds since the epoch
+     */
     public void setTimestamp(long timestamp) {
-        this.timestamp = Instant.ofEpochMilli(timestamp).toString();
+        setTimestamp(Math.floorDiv(timestamp, 1000L), (int) Math.floorMod(timestamp, 1000L) * 1_000_000);
     }
 
     public void setTimestamp(Instant timestamp) {
-        this.timestamp = timestamp.toString();
+        setTimestamp(timestamp.getEpochSecond(), timestamp.getNano());
+    }
+
+    private void setTimestamp(long epochSecond, int nano) {
+        replaced(ParsedFields.TIMESTAMP);
+        this.timestamp = null;
+        this.timestampSeconds = epochSecond;
+        this.timestampNanos = nano;
     }
 
     public void setTimestamp(String timestamp, boolean skipParse) {
         if (skipParse) {
+            replaced(ParsedFields.TIMESTAMP);
             this.timestamp = timestamp;
         }
         else {
-            this.timestamp = Instant.parse(timestamp).toString();
+            setTimestamp(Instant.parse(timestamp));
+        }
+    }
+
+    /**
+     * Sets a timestamp string that was validated before, written as it is like with {@code skipParse}. The timestamp
+     * is parsed only when assertions are enabled with {@code -ea}, to catch misuse in tests, and must then be accepted
+     * by {@link #setTimestamp(String, boolean)} without {@code skipParse}.
+     */
+    public void setTrustedTimestamp(String timestamp) {
+        assert isValidTimestamp(timestamp) : "Invalid TIMESTAMP: " + timestamp;
+        replaced(ParsedFields.TIMESTAMP);
+        this.timestamp = timestamp;
+    }
+
+    private static boolean isValidTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return false;
+        }
+        try {
+            // the same parser as the checked setter
+            Instant.parse(timestamp);
+            return true;
+        }
+        catch (DateTimeParseException e) {
+            return false;
         }
     }
 
@@ -112,72 +222,185 @@ public class SyslogMessage {
         return this;
     }
 
+    public SyslogMessage withTrustedTimestamp(String timestamp) {
+        setTrustedTimestamp(timestamp);
+        return this;
+    }
+
     public String getHostname() {
+        if (isPending(ParsedFields.HOSTNAME)) {
+            hostname = parsedFields.decode(ParsedFields.HOSTNAME);
+        }
         return hostname;
     }
 
     public void setHostname(String hostname) {
+        detachTemplate();
+        replaced(ParsedFields.HOSTNAME);
         this.hostname = hostname;
     }
 
     public SyslogMessage withHostname(String hostname) {
-        this.hostname = hostname;
+        setHostname(hostname);
         return this;
     }
 
     public String getAppName() {
+        if (isPending(ParsedFields.APP_NAME)) {
+            appName = parsedFields.decode(ParsedFields.APP_NAME);
+        }
         return appName;
     }
 
     public void setAppName(String appName) {
+        detachTemplate();
+        replaced(ParsedFields.APP_NAME);
         this.appName = appName;
     }
 
     public SyslogMessage withAppName(String appName) {
-        this.appName = appName;
+        setAppName(appName);
         return this;
     }
 
     public String getProcId() {
+        if (isPending(ParsedFields.PROC_ID)) {
+            procId = parsedFields.decode(ParsedFields.PROC_ID);
+        }
         return procId;
     }
 
     public void setProcId(String procId) {
+        detachTemplate();
+        replaced(ParsedFields.PROC_ID);
         this.procId = procId;
     }
 
     public SyslogMessage withProcId(String procId) {
-        this.procId = procId;
+        setProcId(procId);
         return this;
     }
 
     public String getMsgId() {
+        if (isPending(ParsedFields.MSG_ID)) {
+            msgId = parsedFields.decode(ParsedFields.MSG_ID);
+        }
         return msgId;
     }
 
     public void setMsgId(String msgId) {
+        replaced(ParsedFields.MSG_ID);
         this.msgId = msgId;
     }
 
     public SyslogMessage withMsgId(String msgId) {
-        this.msgId = msgId;
+        setMsgId(msgId);
         return this;
     }
 
     public String getMsg() {
+        if (isPending(ParsedFields.MSG)) {
+            msg = parsedFields.decode(ParsedFields.MSG);
+        }
+        else if (msgChars != null) {
+            return msgChars.toString();
+        }
+        else if (msgBytes != null) {
+            msg = new String(msgBytes, msgBytesOffset, msgBytesLength, StandardCharsets.UTF_8);
+            msgBytes = null;
+        }
         return msg;
     }
 
     public void setMsg(String msg) {
+        replaced(ParsedFields.MSG);
         this.msg = msg;
+        this.msgChars = null;
+        this.msgBytes = null;
+    }
+
+    /**
+     * Sets the msg without copying the chars, they are encoded straight from {@code msg}. The chars must not change
+     * until the message has been encoded for the last time.
+     */
+    public void setMsg(CharSequence msg) {
+        if (msg == null || msg instanceof String) {
+            setMsg((String) msg);
+            return;
+        }
+        setMsg((String) null);
+        this.msgChars = msg;
+    }
+
+    /**
+     * Sets the msg to {@code length} chars from {@code offset} of {@code chars}, without copying them. The chars must
+     * not change until the message has been encoded for the last time.
+     */
+    public void setMsg(char[] chars, int offset, int length) {
+        setMsg(CharBuffer.wrap(chars, offset, length));
+    }
+
+    /**
+     * Sets the msg to {@code length} bytes of UTF-8 from {@code offset} of {@code utf8}. The bytes are not copied or
+     * validated, byte outputs copy them as they are, so they must not change until the message has been encoded for
+     * the last time.
+     */
+    public void setUtf8Msg(byte[] utf8, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > utf8.length) {
+            throw new IndexOutOfBoundsException("Invalid region " + offset + "+" + length + " of " + utf8.length);
+        }
+        setMsg((String) null);
+        this.msgBytes = utf8;
+        this.msgBytesOffset = offset;
+        this.msgBytesLength = length;
+    }
+
+    /**
+     * Sets the msg to the remaining UTF-8 bytes of {@code utf8}, leaving its position unchanged. The bytes of a
+     * buffer with an accessible array are used without copying, see {@link #setUtf8Msg(byte[], int, int)}, other
+     * buffers are copied once into an array kept by the message.
+     */
+    public void setUtf8Msg(ByteBuffer utf8) {
+        int length = utf8.remaining();
+        if (utf8.hasArray()) {
+            setUtf8Msg(utf8.array(), utf8.arrayOffset() + utf8.position(), length);
+        }
+        else {
+            if (msgBytesCopy == null || msgBytesCopy.length < length) {
+                msgBytesCopy = new byte[length];
+            }
+            utf8.duplicate().get(msgBytesCopy, 0, length);
+            setUtf8Msg(msgBytesCopy, 0, length);
+        }
     }
 
     public SyslogMessage withMsg(String msg) {
-        this.msg = msg;
+        setMsg(msg);
+        return this;
+    }
+
+    public SyslogMessage withMsg(CharSequence msg) {
+        setMsg(msg);
+        return this;
+    }
+
+    public SyslogMessage withMsg(char[] chars, int offset, int length) {
+        setMsg(chars, offset, length);
+        return this;
+    }
+
+    public SyslogMessage withUtf8Msg(byte[] utf8, int offset, int length) {
+        setUtf8Msg(utf8, offset, length);
+        return this;
+    }
+
+    public SyslogMessage withUtf8Msg(ByteBuffer utf8) {
+        setUtf8Msg(utf8);
         return this;
     }
     
     public Set<SDElement> getSDElements() {
+        decodeSDElements();
         Set<SDElement> ssde = sdElements;
         if (ssde == null) {
             ssde = new LinkedHashSet<>(0);
@@ -186,29 +409,283 @@ public class SyslogMessage {
     }
     
     public void setSDElements(Set<SDElement> ssde) {
+        replaced(ParsedFields.STRUCTURED_DATA);
         this.sdElements = ssde;
     }
     
     public SyslogMessage withSDElement(SDElement sde) {
+        decodeSDElements();
         if (sdElements == null) {
-            sdElements = new LinkedHashSet<>();
+            sdElements = ownSDElements();
         }
         sdElements.add(sde);
         return this;
     }
 
+    private void decodeSDElements() {
+        if (isPending(ParsedFields.STRUCTURED_DATA)) {
+            parsedFields.clear(ParsedFields.STRUCTURED_DATA);
+            sdElements = ownSDElements();
+            Rfc5424Parser.decodeSDElements(
+                    parsedFields.buffer(),
+                    parsedFields.start(ParsedFields.STRUCTURED_DATA),
+                    parsedFields.end(ParsedFields.STRUCTURED_DATA),
+                    sdElements
+            );
+        }
+    }
+
+    private boolean isPending(int field) {
+        return parsedFields != null && parsedFields.isPending(field);
+    }
+
+    private void replaced(int field) {
+        if (parsedFields != null) {
+            parsedFields.clear(field);
+        }
+    }
+
+    /**
+     * @return holder for the undecoded fields, filled by {@link Rfc5424Parser} after {@link #reset()}
+     */
+    ParsedFields parsedFields() {
+        if (parsedFields == null) {
+            parsedFields = new ParsedFields();
+        }
+        return parsedFields;
+    }
+
+    void setParsedPriority(Priority priority) {
+        this.facility = priority.facility();
+        this.severity = priority.severity();
+    }
+
+    private Set<SDElement> ownSDElements() {
+        if (ownSDElements == null) {
+            ownSDElements = new LinkedHashSet<>();
+        }
+        return ownSDElements;
+    }
+
+    /**
+     * @return a copy of this message with all parsed fields decoded and frozen copies of the SD elements, see
+     * {@link ImmutableSyslogMessage}
+     */
+    SyslogMessage snapshot() {
+        if (isPending(ParsedFields.TIMESTAMP)) {
+            timestamp = parsedFields.decode(ParsedFields.TIMESTAMP);
+        }
+        SyslogMessage copy = new SyslogMessage();
+        copy.facility = facility;
+        copy.severity = severity;
+        copy.template = template;
+        copy.timestamp = timestamp;
+        copy.timestampSeconds = timestampSeconds;
+        copy.timestampNanos = timestampNanos;
+        copy.hostname = getHostname();
+        copy.appName = getAppName();
+        copy.procId = getProcId();
+        copy.msgId = getMsgId();
+        copy.msg = getMsg();
+        Set<SDElement> ssde = getSDElements();
+        if (!ssde.isEmpty()) {
+            copy.sdElements = new LinkedHashSet<>(ssde.size() * 2);
+            for (SDElement sde : ssde) {
+                copy.sdElements.add(sde.freeze());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Marks this message as owned by {@link SyslogMessagePool}, so it reuses scratch buffers between encodings.
+     */
+    SyslogMessage pooled() {
+        pooled = true;
+        return this;
+    }
+
+    /**
+     * Returns this message to its initial state: facility and severity unset, header fields NILVALUE, no SD elements,
+     * no msg and no template. The SD element set, and the scratch buffers of a pooled message, are kept for the next
+     * use.
+     */
+    public void reset() {
+        facility = null;
+        severity = null;
+        timestamp = NILVALUE;
+        timestampSeconds = 0L;
+        timestampNanos = 0;
+        hostname = NILVALUE;
+        appName = NILVALUE;
+        procId = NILVALUE;
+        msgId = NILVALUE;
+        msg = null;
+        msgChars = null;
+        msgBytes = null;
+        template = null;
+        if (parsedFields != null) {
+            parsedFields.clear();
+        }
+        sdElements = null;
+        if (ownSDElements != null) {
+            ownSDElements.clear();
+        }
+    }
+
+    public SyslogMessageTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Binds this message to a template. Facility, severity, hostname, app-name and procid are taken from the
+     * template and the pre-rendered parts of the template are used when encoding. The SD elements of the template
+     * are written before the ones of this message and are not part of {@link #getSDElements()}.
+     *
+     * Hostname, app-name and procid of a parsed message are replaced with the ones of the template, both in the
+     * getters and in the encoded message. Setting any of the header fields of the template afterwards detaches the
+     * message from the template, the frozen SD elements of the template are then copied to this message.
+     *
+     * @param template template to bind to, {@code null} detaches the message from its current template
+     */
+    public void setTemplate(SyslogMessageTemplate template) {
+        if (template == null) {
+            detachTemplate();
+            return;
+        }
+        replaced(ParsedFields.HOSTNAME);
+        replaced(ParsedFields.APP_NAME);
+        replaced(ParsedFields.PROC_ID);
+        this.template = template;
+        this.facility = template.getFacility();
+        this.severity = template.getSeverity();
+        this.hostname = template.getHostname();
+        this.appName = template.getAppName();
+        this.procId = template.getProcId();
+    }
+
+    public SyslogMessage withTemplate(SyslogMessageTemplate template) {
+        setTemplate(template);
+        return this;
+    }
+
+    private void detachTemplate() {
+        if (template == null) {
+            return;
+        }
+        decodeSDElements();
+        List<SDElement> templateSDElements = template.getSDElements();
+        template = null;
+        if (!templateSDElements.isEmpty()) {
+            Set<SDElement> ssde = new LinkedHashSet<>(templateSDElements);
+            if (sdElements != null) {
+                ssde.addAll(sdElements);
+            }
+            sdElements = ownSDElements();
+            sdElements.clear();
+            sdElements.addAll(ssde);
+        }
+    }
+
     /**
      * Generates an <a href="http://tools.ietf.org/html/rfc5424">RFC-5424</a> message.
      */
     public String toRfc5424SyslogMessage() {
+        StringBuilder sb;
+        StringBuilderOutput output;
+        if (!pooled) {
+            sb = new StringBuilder(estimatedLength());
+            output = new StringBuilderOutput(sb);
+        }
+        else {
+            if (scratchBuilder == null) {
+                scratchBuilder = new StringBuilder();
+                scratchBuilderOutput = new StringBuilderOutput(scratchBuilder);
+            }
+            else {
+                scratchBuilder.setLength(0);
+            }
+            sb = scratchBuilder;
+            output = scratchBuilderOutput;
+        }
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        writeRfc5424(output);
+        EncodeMetrics.encoded(listener, this, sb, 0, sb.length(), start);
+        return sb.toString();
+    }
 
-        StringBuilder sw = new StringBuilder();
-        try {
-            toRfc5424SyslogMessage(sw);
-        } catch (IOException e) {
-            throw new IllegalStateException(e);
+    /**
+     * Computes the length of {@link #toRfc5424SyslogMessage()} without building the message, for sizing outputs.
+     *
+     * @return number of chars in the message
+     * @throws IllegalArgumentException if a mandatory field of the message is missing
+     */
+    public int rfc5424Length() {
+        return measure().chars();
+    }
+
+    /**
+     * Computes the number of bytes {@link #toRfc5424SyslogMessage(byte[], int)} writes, without encoding the message.
+     *
+     * @return number of UTF-8 bytes in the message
+     * @throws IllegalArgumentException if a mandatory field of the message is missing
+     */
+    public int rfc5424Utf8Length() {
+        return measure().bytes();
+    }
+
+    /**
+     * Estimates {@link #rfc5424Length()} from the lengths of the fields without encoding the message, for sizing a
+     * builder that grows if the estimate is short.
+     */
+    int estimatedLength() {
+        // priority, version, a timestamp with nanos and the separators
+        int length = 48;
+        if (template != null) {
+            length += template.headerMiddle.chars.length();
+            if (template.structuredData != null) {
+                length += template.structuredData.chars.length();
+            }
+        }
+        else {
+            length += fieldLength(ParsedFields.HOSTNAME, hostname);
+            length += fieldLength(ParsedFields.APP_NAME, appName);
+            length += fieldLength(ParsedFields.PROC_ID, procId);
+        }
+        length += fieldLength(ParsedFields.MSG_ID, msgId);
+        if (isPending(ParsedFields.STRUCTURED_DATA)) {
+            length += fieldLength(ParsedFields.STRUCTURED_DATA, null);
+        }
+        else if (sdElements != null) {
+            length += 64 * sdElements.size();
         }
-        return sw.toString();
+        if (isPending(ParsedFields.MSG)) {
+            length += fieldLength(ParsedFields.MSG, null);
+        }
+        else if (msg != null) {
+            length += msg.length();
+        }
+        else if (msgChars != null) {
+            length += msgChars.length();
+        }
+        else if (msgBytes != null) {
+            length += msgBytesLength;
+        }
+        return length;
+    }
+
+    private int fieldLength(int field, String value) {
+        if (isPending(field)) {
+            return parsedFields.end(field) - parsedFields.start(field);
+        }
+        return value == null ? 0 : value.length();
+    }
+
+    private LengthOutput measure() {
+        LengthOutput out = new LengthOutput();
+        writeRfc5424(out);
+        return out;
     }
 
     /**
@@ -218,75 +695,298 @@ public class SyslogMessage {
      * <a href="https://tools.ietf.org/html/rfc5424#section-6.2.1">RFC-5424, Section 6.2.1</a>
      */
     public void toRfc5424SyslogMessage(StringBuilder out) throws IOException {
-        if(facility == null) {
-            throw new IllegalArgumentException("Facility must be set before constructing a message.");
-        }
-        if(severity == null) {
-            throw new IllegalArgumentException("Severity must be set before constructing a message");
-        }
-        int pri = facility.numericalCode() * 8 + severity.numericalCode();
-
-        out.append('<');
-        out.append(pri);
-        out.append('>');
-        out.append('1'); // version
-        out.append(SP);
-        out.append(timestamp); // message time
-        out.append(SP);
-        out.append(hostname); // emitting server hostname
-        out.append(SP);
-        out.append(appName);
-        out.append(SP);
-        out.append(procId);
-        out.append(SP);
-        out.append(msgId);
-        out.append(SP);
-        if(sdElements == null || sdElements.isEmpty()) {
-            out.append(NILVALUE);
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        int length = out.length();
+        writeRfc5424(new StringBuilderOutput(out));
+        EncodeMetrics.encoded(listener, this, out, length, out.length(), start);
+    }
+
+    /**
+     * Generates an <a href="http://tools.ietf.org/html/rfc5424">RFC-5424</a> message encoded as UTF-8 directly
+     * into {@code out}, starting at {@code offset}.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the message does not fit in {@code out}, the contents of {@code out} after
+     * {@code offset} are undefined in that case
+     */
+    public int toRfc5424SyslogMessage(byte[] out, int offset) {
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        ByteArrayOutput output = byteArrayOutput(out, offset, out.length);
+        writeRfc5424(output);
+        int length = output.position() - offset;
+        EncodeMetrics.encoded(listener, this, length, start);
+        return length;
+    }
+
+    /**
+     * Generates an <a href="http://tools.ietf.org/html/rfc5424">RFC-5424</a> message encoded as UTF-8 directly
+     * into {@code out}, starting at its position. The position is advanced by the number of bytes written.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the message does not fit in the remaining space of {@code out}, the position
+     * of {@code out} is left unchanged in that case
+     * @throws ReadOnlyBufferException if {@code out} is read-only
+     */
+    public int toRfc5424SyslogMessage(ByteBuffer out) {
+        if (out.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        EncodeListener listener = EncodeMetrics.listener();
+        long startTime = EncodeMetrics.start(listener);
+        int start = out.position();
+        int end;
+        if (out.hasArray()) {
+            int arrayOffset = out.arrayOffset();
+            ByteArrayOutput output = byteArrayOutput(out.array(), arrayOffset + start, arrayOffset + out.limit());
+            writeRfc5424(output);
+            end = output.position() - arrayOffset;
         }
         else {
-            writeSDElements(out);
+            ByteBufferOutput output = new ByteBufferOutput(out);
+            writeRfc5424(output);
+            end = output.position();
         }
-        if (msg != null) {
-            out.append(SP);
-            out.append(msg);
+        ((Buffer) out).position(end);
+        EncodeMetrics.encoded(listener, this, end - start, startTime);
+        return end - start;
+    }
+
+    /**
+     * @return an output pointed to the region, the scratch output of a pooled message
+     */
+    ByteArrayOutput byteArrayOutput(byte[] buffer, int position, int limit) {
+        if (!pooled) {
+            return new ByteArrayOutput(buffer, position, limit);
         }
+        if (scratchByteArrayOutput == null) {
+            scratchByteArrayOutput = new ByteArrayOutput(buffer, position, limit);
+        }
+        else {
+            scratchByteArrayOutput.wrap(buffer, position, limit);
+        }
+        return scratchByteArrayOutput;
+    }
+
+    void writeRfc5424(Rfc5424Output out) {
+        writeHeader(out);
+        writeStructuredData(out);
+        writeMsg(out);
     }
 
+    /**
+     * Writes the header up to and including the space after the msgid.
+     */
+    void writeHeader(Rfc5424Output out) {
+        if (template != null) {
+            out.write(template.getPriority().prefix);
+            writeTimestamp(out); // message time
+            out.write(template.headerMiddle);
+        }
+        else {
+            if (facility == null) {
+                throw new IllegalArgumentException("Facility must be set before constructing a message.");
+            }
+            if (severity == null) {
+                throw new IllegalArgumentException("Severity must be set before constructing a message");
+            }
+            out.write(Priority.of(facility, severity).prefix); // priority and version
+            writeTimestamp(out); // message time
+            out.write(' ');
+            writeField(ParsedFields.HOSTNAME, hostname, out); // emitting server hostname
+            out.write(' ');
+            writeField(ParsedFields.APP_NAME, appName, out);
+            out.write(' ');
+            writeField(ParsedFields.PROC_ID, procId, out);
+            out.write(' ');
+        }
+        writeField(ParsedFields.MSG_ID, msgId, out);
+        out.write(' ');
+    }
+
+    void writeStructuredData(Rfc5424Output out) {
+        PreEncoded templateSD = template == null ? null : template.structuredData;
+        if (isPending(ParsedFields.STRUCTURED_DATA)) {
+            if (templateSD != null) {
+                out.write(templateSD);
+            }
+            parsedFields.write(ParsedFields.STRUCTURED_DATA, out);
+        }
+        else if (templateSD == null && (sdElements == null || sdElements.isEmpty())) {
+            out.write(NILVALUE);
+        }
+        else {
+            if (templateSD != null) {
+                out.write(templateSD);
+            }
+            if (sdElements != null && !sdElements.isEmpty()) {
+                writeSDElements(out);
+            }
+        }
+    }
+
+    /**
+     * Writes the space and the msg, nothing if there is no msg.
+     */
+    void writeMsg(Rfc5424Output out) {
+        if (isPending(ParsedFields.MSG)) {
+            out.write(' ');
+            parsedFields.write(ParsedFields.MSG, out);
+        }
+        else if (msg != null) {
+            out.write(' ');
+            out.writeText(msg);
+        }
+        else if (msgChars != null) {
+            out.write(' ');
+            out.writeText(msgChars);
+        }
+        else if (msgBytes != null) {
+            out.write(' ');
+            out.writeUtf8(msgBytes, msgBytesOffset, msgBytesLength);
+        }
+    }
+
+    /**
+     * Writes the msg like {@link #writeMsg(Rfc5424Output)}, cut at the last whole code point that fits in {@code out}.
+     * The space before the msg is left out too if no byte of the msg fits.
+     *
+     * @return {@code true} if bytes of the msg were cut
+     */
+    boolean writeMsgTruncated(ByteArrayOutput out) {
+        boolean empty;
+        if (isPending(ParsedFields.MSG)) {
+            empty = parsedFields.start(ParsedFields.MSG) == parsedFields.end(ParsedFields.MSG);
+        }
+        else if (msg != null) {
+            empty = msg.isEmpty();
+        }
+        else if (msgChars != null) {
+            empty = msgChars.length() == 0;
+        }
+        else if (msgBytes != null) {
+            empty = msgBytesLength == 0;
+        }
+        else {
+            return false;
+        }
+        if (out.remaining() == 0) {
+            return !empty;
+        }
+        int start = out.position();
+        out.write(' ');
+        boolean complete;
+        if (isPending(ParsedFields.MSG)) {
+            byte[] buffer = parsedFields.buffer();
+            int msgStart = parsedFields.start(ParsedFields.MSG);
+            complete = out.writeUtf8Truncated(buffer, msgStart, parsedFields.end(ParsedFields.MSG) - msgStart);
+        }
+        else if (msg != null) {
+            complete = out.writeTruncated(msg);
+        }
+        else if (msgChars != null) {
+            complete = out.writeTruncated(msgChars);
+        }
+        else {
+            complete = out.writeUtf8Truncated(msgBytes, msgBytesOffset, msgBytesLength);
+        }
+        if (!complete && out.position() == start + 1) {
+            // no byte of the msg fits, a trailing space would read as an empty msg
+            out.rewind(start);
+        }
+        return !complete;
+    }
+
+    private void writeField(int field, String value, Rfc5424Output out) {
+        if (isPending(field)) {
+            parsedFields.write(field, out);
+        }
+        else {
+            out.writeText(value);
+        }
+    }
+
+    private void writeTimestamp(Rfc5424Output out) {
+        if (isPending(ParsedFields.TIMESTAMP)) {
+            parsedFields.write(ParsedFields.TIMESTAMP, out);
+        }
+        else if (timestamp == null) {
+            TimestampRenderer.INSTANCE.write(timestampSeconds, timestampNanos, out);
+        }
+        else {
+            out.writeText(timestamp);
+        }
+    }
+
+    /**
+     * Appends the structured data elements to {@code out}.
+     *
+     * @deprecated the encoder no longer calls this method, so overriding it does not change the encoded message
+     */
+    @Deprecated
     protected void writeSDElements(StringBuilder out) throws IOException {
+        writeSDElements(new StringBuilderOutput(out));
+    }
+
+    void writeSDElements(Rfc5424Output out) {
         for (SDElement sde : sdElements) {
-            out.append("[");
-            out.append(sde.getSdID());
-            for (SDParam sdp : sde.getSdParams()) {
-                out.append(SP);
-                out.append(sdp.getParamName());
-                out.append('=');
-                out.append('"');
-                out.append(getEscapedParamValue(sdp.getParamValue()));
-                out.append('"');
+            writeSDElement(sde, out);
+        }
+    }
+
+    static void writeSDElement(SDElement sde, Rfc5424Output out) {
+        PreEncoded encoded = sde.getEncoded();
+        if (encoded != null) {
+            out.write(encoded);
+            return;
+        }
+        out.write('[');
+        SDName sdID = sde.getSdIDToken();
+        if (sdID != null) {
+            out.write(sdID.encoded);
+        }
+        else {
+            out.writeText(sde.getSdID());
+        }
+        int paramCount = sde.paramCount();
+        for (int i = 0; i < paramCount; i++) {
+            out.write(' ');
+            SDName paramName = sde.paramNameToken(i);
+            if (paramName != null) {
+                out.write(paramName.encoded);
+            }
+            else {
+                out.writeText(sde.paramName(i));
             }
-            out.append("]");
+            out.write('=');
+            out.write('"');
+            out.writeEscaped(sde.paramValue(i));
+            out.write('"');
         }
+        out.write(']');
     }
 
+    /**
+     * Escapes {@code "}, {@code \} and {@code ]} in a param value.
+     *
+     * @deprecated the encoder escapes param values as it writes them and no longer calls this method, so overriding
+     *             it does not change the encoded message
+     */
+    @Deprecated
     protected String getEscapedParamValue(String paramValue) {
-        StringBuilder sb = new StringBuilder(paramValue.length());
-        
+        int escapes = 0;
         for (int i = 0; i < paramValue.length(); i++) {
             char c = paramValue.charAt(i);
-            switch (c) {
-                // Falls through
-                case '"':
-                case '\\':
-                case ']':
-                    sb.append('\\');
-                    break;
-                default:
-                    break;
+            if (c == '"' || c == '\\' || c == ']') {
+                escapes++;
             }
-            sb.append(c);
         }
-        
+        if (escapes == 0) {
+            return paramValue;
+        }
+        StringBuilder sb = new StringBuilder(paramValue.length() + escapes);
+        new StringBuilderOutput(sb).writeEscaped(paramValue);
         return sb.toString();
     }
 }
@@ -0,0 +1,84 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of reusable {@link SyslogMessage} instances.
+ *
+ * A pool instance is bounded and can be shared by all threads: {@link #acquire()} hands out an idle message or a new
+ * one when the pool is empty, {@link #release(SyslogMessage)} resets the message and keeps it if there is room.
+ * Messages from a pool reuse scratch buffers between encodings, so each must be used by one thread at a time.
+ *
+ * For producers that encode the message on the same thread that fills it, {@link #threadLocal()} gives a per-thread
+ * instance without any coordination.
+ */
+public final class SyslogMessagePool {
+    private static final ThreadLocal<SyslogMessage> THREAD_LOCAL = ThreadLocal
+            .withInitial(() -> new SyslogMessage().pooled());
+
+    private final ArrayBlockingQueue<SyslogMessage> idle;
+
+    /**
+     * @param capacity maximum number of idle messages kept
+     */
+    public SyslogMessagePool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.idle = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @return a message in its initial state, either from the pool or a new one
+     */
+    public SyslogMessage acquire() {
+        SyslogMessage message = idle.poll();
+        if (message == null) {
+            message = new SyslogMessage().pooled();
+        }
+        return message;
+    }
+
+    /**
+     * Resets the message and returns it to the pool. The message must not be used by the caller afterwards.
+     * The message is left for the garbage collector if the pool is full.
+     */
+    public void release(SyslogMessage message) {
+        message.reset();
+        idle.offer(message.pooled());
+    }
+
+    /**
+     * @return number of idle messages in the pool
+     */
+    public int size() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the message of the current thread, reset to its initial state. The message is the same on every call
+     * from the same thread, so it must not be kept after the next call or handed to another thread.
+     */
+    public static SyslogMessage threadLocal() {
+        SyslogMessage message = THREAD_LOCAL.get();
+        message.reset();
+        return message;
+    }
+}
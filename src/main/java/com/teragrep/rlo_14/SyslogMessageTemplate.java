@@ -0,0 +1,122 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Header fields and SD elements that stay the same for every message, rendered once.
+ *
+ * Facility, severity, hostname, app-name, procid and the SD elements are taken from a prototype message when the
+ * template is created. Messages bound to the template with {@link SyslogMessage#withTemplate(SyslogMessageTemplate)}
+ * copy the pre-rendered parts as single blocks and only encode the timestamp, msgid, their own SD elements and msg.
+ *
+ * The SD elements are frozen with {@link SDElement#freeze()} and rendered when the template is created, later changes
+ * to the {@link SDElement} instances of the prototype are not visible in the template or in messages detached from it.
+ */
+public final class SyslogMessageTemplate {
+    private final Priority priority;
+    private final String hostname;
+    private final String appName;
+    private final String procId;
+    private final List<SDElement> sdElements;
+
+    /**
+     * {@code  HOSTNAME APP-NAME PROCID } between the timestamp and the msgid
+     */
+    final PreEncoded headerMiddle;
+    /**
+     * Rendered SD elements, {@code null} if the prototype had none
+     */
+    final PreEncoded structuredData;
+
+    public SyslogMessageTemplate(SyslogMessage prototype) {
+        if (prototype.getFacility() == null) {
+            throw new IllegalArgumentException("Facility must be set before constructing a template.");
+        }
+        if (prototype.getSeverity() == null) {
+            throw new IllegalArgumentException("Severity must be set before constructing a template");
+        }
+        this.priority = prototype.getPriority();
+        this.hostname = prototype.getHostname();
+        this.appName = prototype.getAppName();
+        this.procId = prototype.getProcId();
+
+        List<SDElement> elements = new ArrayList<>();
+        if (prototype.getTemplate() != null) {
+            elements.addAll(prototype.getTemplate().getSDElements());
+        }
+        for (SDElement sde : prototype.getSDElements()) {
+            elements.add(sde.freeze());
+        }
+        this.sdElements = Collections.unmodifiableList(elements);
+
+        this.headerMiddle = new PreEncoded(" " + hostname + " " + appName + " " + procId + " ");
+        if (elements.isEmpty()) {
+            this.structuredData = null;
+        }
+        else {
+            StringBuilder sb = new StringBuilder();
+            StringBuilderOutput out = new StringBuilderOutput(sb);
+            for (SDElement sde : elements) {
+                SyslogMessage.writeSDElement(sde, out);
+            }
+            this.structuredData = new PreEncoded(sb.toString());
+        }
+    }
+
+    /**
+     * @return a new message bound to this template
+     */
+    public SyslogMessage newMessage() {
+        return new SyslogMessage().withTemplate(this);
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Facility getFacility() {
+        return priority.facility();
+    }
+
+    public Severity getSeverity() {
+        return priority.severity();
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getProcId() {
+        return procId;
+    }
+
+    /**
+     * @return the frozen SD elements written before the own SD elements of every message, not modifiable
+     */
+    public List<SDElement> getSDElements() {
+        return sdElements;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Encodes a message as separate {@link ByteBuffer} segments for
+ * {@link GatheringByteChannel#write(ByteBuffer[])}: the header, the structured data and the msg.
+ *
+ * The header and the structured data are encoded into a reused array. The msg can be given as a buffer that the caller
+ * has already encoded, which is then used as the last segment as it is, so a large body is never copied into a
+ * combined buffer.
+ *
+ * The returned segments are views of the encoder and valid until the next encode. An instance is meant to be reused
+ * and must not be used by several threads at the same time.
+ */
+public final class SyslogSegmentEncoder {
+    public static final int HEADER = 0;
+    public static final int STRUCTURED_DATA = 1;
+    public static final int MSG = 2;
+
+    private byte[] buffer;
+    private final ByteArrayOutput output;
+    private final ByteBuffer[] segments = new ByteBuffer[3];
+    private ByteBuffer header;
+    private ByteBuffer structuredData;
+    private ByteBuffer msg;
+
+    public SyslogSegmentEncoder() {
+        this(1024);
+    }
+
+    /**
+     * @param initialCapacity initial size in bytes of the array for the header, the structured data and the msg,
+     * the array grows as needed
+     */
+    public SyslogSegmentEncoder(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be positive: " + initialCapacity);
+        }
+        this.output = new ByteArrayOutput(new byte[0], 0, 0);
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Encodes the whole message, including its msg.
+     *
+     * @return the {@link #HEADER}, {@link #STRUCTURED_DATA} and {@link #MSG} segments, the msg segment is empty if the
+     * message has no msg
+     * @throws IllegalArgumentException if a mandatory field of the message is missing
+     */
+    public ByteBuffer[] encode(SyslogMessage message) {
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        encode(message, true);
+        segments[MSG] = msg;
+        EncodeMetrics.encoded(listener, message, (int) remaining(), start);
+        return segments;
+    }
+
+    /**
+     * Encodes the message with the remaining bytes of {@code body} as its msg. The msg of {@code message} itself is
+     * ignored. {@code body} must be UTF-8 and is used as the {@link #MSG} segment without copying, so writing the
+     * segments advances its position.
+     *
+     * @return the {@link #HEADER}, {@link #STRUCTURED_DATA} and {@link #MSG} segments
+     * @throws IllegalArgumentException if a mandatory field of the message is missing
+     */
+    public ByteBuffer[] encode(SyslogMessage message, ByteBuffer body) {
+        EncodeListener listener = EncodeMetrics.listener();
+        long start = EncodeMetrics.start(listener);
+        encodeWithBody(message, body);
+        EncodeMetrics.encoded(listener, message, (int) remaining(), start);
+        return segments;
+    }
+
+    private void encodeWithBody(SyslogMessage message, ByteBuffer body) {
+        encode(message, false);
+        // space before the msg at the end of the structured data segment
+        int end = structuredData.limit();
+        if (end == buffer.length) {
+            grow();
+            encodeWithBody(message, body);
+            return;
+        }
+        buffer[end] = ' ';
+        ((Buffer) structuredData).limit(end + 1);
+        segments[MSG] = body;
+    }
+
+    /**
+     * @return total number of bytes remaining in the segments of the last encode
+     */
+    public long remaining() {
+        long remaining = 0;
+        for (ByteBuffer segment : segments) {
+            remaining += segment.remaining();
+        }
+        return remaining;
+    }
+
+    /**
+     * Writes the remaining bytes of the segments of the last encode with a single gathering write, which may be
+     * partial on non-blocking channels.
+     *
+     * @return number of bytes written
+     */
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        return channel.write(segments);
+    }
+
+    private void encode(SyslogMessage message, boolean withMsg) {
+        while (true) {
+            try {
+                output.wrap(buffer, 0, buffer.length);
+                message.writeHeader(output);
+                int headerEnd = output.position();
+                message.writeStructuredData(output);
+                int structuredDataEnd = output.position();
+                if (withMsg) {
+                    message.writeMsg(output);
+                }
+                int msgEnd = output.position();
+                segment(header, 0, headerEnd);
+                segment(structuredData, headerEnd, structuredDataEnd);
+                segment(msg, structuredDataEnd, msgEnd);
+                segments[HEADER] = header;
+                segments[STRUCTURED_DATA] = structuredData;
+                return;
+            }
+            catch (BufferOverflowException e) {
+                // one allocation of the exact size, plus the space before a msg given as a body
+                allocate(Math.max(buffer.length * 2, message.rfc5424Utf8Length() + 1));
+            }
+        }
+    }
+
+    private static void segment(ByteBuffer segment, int position, int limit) {
+        ((Buffer) segment).limit(limit);
+        ((Buffer) segment).position(position);
+    }
+
+    private void grow() {
+        allocate(buffer.length * 2);
+    }
+
+    private void allocate(int capacity) {
+        buffer = new byte[capacity];
+        header = ByteBuffer.wrap(buffer);
+        structuredData = ByteBuffer.wrap(buffer);
+        msg = ByteBuffer.wrap(buffer);
+    }
+}
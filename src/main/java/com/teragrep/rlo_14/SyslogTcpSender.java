@@ -0,0 +1,453 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends messages over TCP with octet-counting framing from
+ * <a href="https://tools.ietf.org/html/rfc6587#section-3.4.1">RFC-6587</a>.
+ *
+ * {@link #send(SyslogMessage)} encodes the message on the calling thread into a per-thread buffer, and only copies the
+ * finished frame into the pending batch while holding the lock shared with the I/O thread. A single I/O thread
+ * swaps the pending batch with the one it has finished writing and writes it to a non-blocking
+ * {@link SocketChannel}, so messages sent while a write is in progress are coalesced into the next write. Partial
+ * writes continue when the channel becomes writable again.
+ *
+ * When the connection fails the I/O thread reconnects after the reconnect delay and replays the batch from the first
+ * frame that was not completely written. Frames written before the failure are not replayed, even though the
+ * collector may not have received them. Messages are queued while disconnected until the queue reaches its capacity.
+ */
+public final class SyslogTcpSender implements Closeable {
+    /**
+     * Frame of the message being sent, encoded outside {@link #lock}
+     */
+    private static final ThreadLocal<SyslogBatchEncoder> FRAME = ThreadLocal
+            .withInitial(() -> new SyslogBatchEncoder(256));
+
+    private final SocketAddress address;
+    private final int capacity;
+    private final long reconnectDelayNanos;
+    /**
+     * Package-private so tests can make the I/O thread fail
+     */
+    final Selector selector;
+    private final Thread thread;
+
+    private final Object lock = new Object();
+    /**
+     * Messages waiting for the current write to complete, guarded by {@link #lock}
+     */
+    private SyslogBatchEncoder pending = new SyslogBatchEncoder();
+    /**
+     * Messages of {@link #writing} that are not completely written, guarded by {@link #lock}
+     */
+    private int unwritten;
+
+    // owned by the I/O thread
+    private SyslogBatchEncoder writing = new SyslogBatchEncoder();
+    private ByteBuffer writeBuffer;
+    private int frameStart;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private long nextConnect;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(256);
+
+    private final LongAdder connectionFailures = new LongAdder();
+    private volatile boolean running = true;
+    /**
+     * Failure that stopped the I/O thread, rethrown by {@link #send(SyslogMessage)} and
+     * {@link #flush(long, TimeUnit)}
+     */
+    private volatile Exception failure;
+
+    private SyslogTcpSender(Builder builder) throws IOException {
+        this.address = builder.address;
+        this.capacity = builder.capacity;
+        this.reconnectDelayNanos = builder.reconnectDelayNanos;
+        this.selector = Selector.open();
+        this.nextConnect = System.nanoTime();
+        this.thread = builder.threadFactory.newThread(this::run);
+        thread.start();
+    }
+
+    /**
+     * @param address address of the syslog collector
+     */
+    public static Builder builder(SocketAddress address) {
+        return new Builder(address);
+    }
+
+    /**
+     * Encodes {@code message} and queues it for sending. The message can be reused when this returns.
+     *
+     * @return {@code false} if the queue is full and the message was not queued
+     * @throws IllegalArgumentException if a mandatory field of the message is missing
+     * @throws IllegalStateException if the sender has been closed or its I/O thread has failed
+     */
+    public boolean send(SyslogMessage message) {
+        if (!running) {
+            checkFailure();
+            throw new IllegalStateException("Sender is closed");
+        }
+        SyslogBatchEncoder frame = FRAME.get();
+        frame.clear();
+        frame.add(message);
+        boolean wasEmpty;
+        synchronized (lock) {
+            if (pending.size() >= capacity) {
+                return false;
+            }
+            wasEmpty = pending.count() == 0;
+            pending.addBatch(frame);
+        }
+        if (wasEmpty) {
+            selector.wakeup();
+        }
+        return true;
+    }
+
+    /**
+     * @return number of queued messages that are not completely written to the connection
+     */
+    public int queueDepth() {
+        synchronized (lock) {
+            return pending.count() + unwritten;
+        }
+    }
+
+    /**
+     * @return number of bytes waiting for the current write to complete
+     */
+    public int queuedBytes() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return number of failed connection attempts and connections lost, each is followed by a reconnect
+     */
+    public long connectionFailures() {
+        return connectionFailures.sum();
+    }
+
+    /**
+     * Waits until every queued message has been written to the connection.
+     *
+     * @return {@code false} if the timeout elapsed first
+     * @throws IllegalStateException if the I/O thread has failed, the queued messages are not written
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (pending.count() + unwritten > 0) {
+                checkFailure();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+        }
+        return true;
+    }
+
+    private void checkFailure() {
+        Exception failure = this.failure;
+        if (failure != null) {
+            throw new IllegalStateException("I/O thread failed", failure);
+        }
+    }
+
+    /**
+     * Stops the I/O thread and closes the connection. Messages that are still queued are discarded, use
+     * {@link #flush(long, TimeUnit)} first to wait for them.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                if (channel == null) {
+                    long delay = nextConnect - System.nanoTime();
+                    if (delay > 0) {
+                        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(delay)));
+                        selector.selectedKeys().clear();
+                        continue;
+                    }
+                    connect();
+                }
+                if (channel != null && channel.isConnected()) {
+                    write();
+                }
+                if (channel == null) {
+                    continue;
+                }
+                selector.select();
+                for (SelectionKey selected : selector.selectedKeys()) {
+                    if (selected.isValid() && selected.isConnectable()) {
+                        finishConnect();
+                    }
+                    else if (selected.isValid() && selected.isReadable()) {
+                        read();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            failure = e;
+            running = false;
+            synchronized (lock) {
+                // wakes up flush() to rethrow the failure
+                lock.notifyAll();
+            }
+        }
+        finally {
+            disconnect();
+            try {
+                selector.close();
+            }
+            catch (IOException ignored) {
+                // nothing to do while closing
+            }
+        }
+    }
+
+    private void connect() {
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                key = channel.register(selector, SelectionKey.OP_READ);
+            }
+            else {
+                key = channel.register(selector, SelectionKey.OP_CONNECT);
+            }
+        }
+        catch (IOException e) {
+            failed();
+        }
+    }
+
+    private void finishConnect() {
+        try {
+            if (channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+        catch (IOException e) {
+            failed();
+        }
+    }
+
+    /**
+     * Writes until the channel is full or nothing is queued.
+     */
+    private void write() {
+        try {
+            while (true) {
+                if (writeBuffer == null || !writeBuffer.hasRemaining()) {
+                    if (!nextBatch()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                }
+                channel.write(writeBuffer);
+                completeFrames();
+                if (writeBuffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        }
+        catch (IOException e) {
+            failed();
+        }
+    }
+
+    /**
+     * Discards anything the collector sends, detects a connection closed by the collector before the next write.
+     */
+    private void read() {
+        try {
+            ((Buffer) readBuffer).clear();
+            if (channel.read(readBuffer) < 0) {
+                failed();
+            }
+        }
+        catch (IOException e) {
+            failed();
+        }
+    }
+
+    /**
+     * Takes the pending batch for writing.
+     *
+     * @return {@code false} if nothing is pending
+     */
+    private boolean nextBatch() {
+        synchronized (lock) {
+            writing.clear();
+            writeBuffer = null;
+            frameStart = 0;
+            if (pending.count() == 0) {
+                lock.notifyAll();
+                return false;
+            }
+            SyslogBatchEncoder swap = writing;
+            writing = pending;
+            pending = swap;
+            unwritten = writing.count();
+        }
+        writeBuffer = writing.toByteBuffer();
+        return true;
+    }
+
+    /**
+     * Moves {@link #frameStart} over the frames that have been completely written.
+     */
+    private void completeFrames() {
+        byte[] array = writing.array();
+        int position = writeBuffer.position();
+        int completed = 0;
+        while (frameStart < position) {
+            int length = OctetCounting.parseLength(array, frameStart, writing.size());
+            int frameEnd = frameStart + OctetCounting.digits(length) + 1 + length;
+            if (frameEnd > position) {
+                break;
+            }
+            frameStart = frameEnd;
+            completed++;
+        }
+        if (completed > 0) {
+            synchronized (lock) {
+                unwritten -= completed;
+            }
+        }
+    }
+
+    /**
+     * Closes the failed connection, schedules a reconnect and rewinds the current batch to the first frame that was
+     * not completely written.
+     */
+    private void failed() {
+        disconnect();
+        if (writeBuffer != null) {
+            ((Buffer) writeBuffer).position(frameStart);
+        }
+        connectionFailures.increment();
+        nextConnect = System.nanoTime() + reconnectDelayNanos;
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            }
+            catch (IOException ignored) {
+                // the connection is abandoned anyway
+            }
+            channel = null;
+            key = null;
+        }
+    }
+
+    /**
+     * Configures a {@link SyslogTcpSender}, {@link #build()} starts its I/O thread.
+     */
+    public static final class Builder {
+        private final SocketAddress address;
+        private int capacity = 1024 * 1024;
+        private long reconnectDelayNanos = TimeUnit.SECONDS.toNanos(1);
+        private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+        private Builder(SocketAddress address) {
+            if (address == null) {
+                throw new IllegalArgumentException("Address cannot be null");
+            }
+            this.address = address;
+        }
+
+        /**
+         * @param capacity number of queued bytes after which messages are rejected, 1 MiB by default
+         */
+        public Builder withCapacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * @param delay wait before reconnecting after a failed connection, one second by default
+         */
+        public Builder withReconnectDelay(long delay, TimeUnit unit) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("Reconnect delay cannot be negative: " + delay);
+            }
+            this.reconnectDelayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        public Builder withThreadFactory(ThreadFactory threadFactory) {
+            if (threadFactory == null) {
+                throw new IllegalArgumentException("Thread factory cannot be null");
+            }
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * @throws IOException if the selector can not be opened
+         */
+        public SyslogTcpSender build() throws IOException {
+            return new SyslogTcpSender(this);
+        }
+    }
+}
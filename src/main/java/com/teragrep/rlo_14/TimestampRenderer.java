@@ -0,0 +1,128 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.time.Instant;
+
+/**
+ * Renders <a href="https://tools.ietf.org/html/rfc3339">RFC 3339</a> timestamps in the same format as
+ * {@link Instant#toString()}, directly into an {@link Rfc5424Output}.
+ *
+ * The {@code yyyy-MM-ddTHH:mm:ss} part is rendered once per second and cached, only the fraction of the second is
+ * written per call. The cache has a slot for each of {@value #SLOTS} consecutive seconds, so threads encoding
+ * different seconds, such as a late message next to a current one, do not evict each other. A single instance is
+ * shared by all threads and nothing is allocated as long as the seconds are in the cache.
+ */
+final class TimestampRenderer {
+    private static final int[] POWERS_OF_TEN = {
+            1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000
+    };
+
+    static final int SLOTS = 16;
+
+    static final TimestampRenderer INSTANCE = new TimestampRenderer();
+
+    private static final class Second {
+        private final long epochSecond;
+        /**
+         * {@code null} when the year is outside 0000-9999 and {@link Instant#toString()} is used instead
+         */
+        private final PreEncoded prefix;
+
+        private Second(long epochSecond, PreEncoded prefix) {
+            this.epochSecond = epochSecond;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * Slot {@code epochSecond & (SLOTS - 1)} holds the last rendered second ending in those bits. The holders are
+     * immutable with final fields, so a thread reads either a complete holder or one from before, and renders the
+     * second itself when it does not match.
+     */
+    private final Second[] cache = new Second[SLOTS];
+
+    TimestampRenderer() {
+        for (int i = 0; i < SLOTS; i++) {
+            cache[i] = render(i);
+        }
+    }
+
+    private static Second render(long epochSecond) {
+        String rendered = Instant.ofEpochSecond(epochSecond).toString();
+        // yyyy-MM-ddTHH:mm:ssZ
+        if (rendered.length() == 20 && rendered.charAt(4) == '-') {
+            return new Second(epochSecond, new PreEncoded(rendered.substring(0, 19)));
+        }
+        return new Second(epochSecond, null);
+    }
+
+    private Second second(long epochSecond) {
+        int slot = (int) epochSecond & (SLOTS - 1);
+        Second second = cache[slot];
+        if (second.epochSecond != epochSecond) {
+            second = render(epochSecond);
+            cache[slot] = second;
+        }
+        return second;
+    }
+
+    /**
+     * @return the cached {@code yyyy-MM-ddTHH:mm:ss} part of {@code epochSecond}, {@code null} for years outside
+     * 0000-9999
+     */
+    PreEncoded prefix(long epochSecond) {
+        return second(epochSecond).prefix;
+    }
+
+    void write(long epochSecond, int nano, Rfc5424Output out) {
+        Second second = second(epochSecond);
+        if (second.prefix == null) {
+            out.write(Instant.ofEpochSecond(epochSecond, nano).toString());
+            return;
+        }
+        out.write(second.prefix);
+        if (nano != 0) {
+            out.write('.');
+            int digits;
+            int fraction;
+            if (nano % 1_000_000 == 0) {
+                digits = 3;
+                fraction = nano / 1_000_000;
+            }
+            else if (nano % 1_000 == 0) {
+                digits = 6;
+                fraction = nano / 1_000;
+            }
+            else {
+                digits = 9;
+                fraction = nano;
+            }
+            for (int divisor = POWERS_OF_TEN[digits - 1]; divisor > 0; divisor /= 10) {
+                out.write((char) ('0' + fraction / divisor % 10));
+            }
+        }
+        out.write('Z');
+    }
+
+    String toString(long epochSecond, int nano) {
+        StringBuilder sb = new StringBuilder(30);
+        write(epochSecond, nano, new StringBuilderOutput(sb));
+        return sb.toString();
+    }
+}
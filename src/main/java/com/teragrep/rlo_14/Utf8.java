@@ -0,0 +1,191 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * UTF-8 encoding of chars straight into byte arrays and buffers.
+ *
+ * Unpaired surrogates are replaced with {@code '?'} the same way {@link String#getBytes(java.nio.charset.Charset)}
+ * does, so the result is byte for byte the same as encoding the {@link String} form of the message.
+ */
+final class Utf8 {
+    private static final byte REPLACEMENT = (byte) '?';
+
+    private Utf8() {
+    }
+
+    /**
+     * Encodes the chars of {@code s} from {@code start} to {@code end} into {@code dst}.
+     *
+     * @param dp position in {@code dst} to start writing at
+     * @param limit position in {@code dst} that must not be written to
+     * @return position in {@code dst} after the last written byte
+     * @throws BufferOverflowException if the encoded chars do not fit before {@code limit}
+     */
+    static int encode(CharSequence s, int start, int end, byte[] dst, int dp, int limit) {
+        int i = start;
+        // US-ASCII run, no need to check the limit on every char
+        int asciiEnd = Math.min(end, start + (limit - dp));
+        while (i < asciiEnd) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            dst[dp++] = (byte) c;
+            i++;
+        }
+        while (i < end) {
+            char c = s.charAt(i++);
+            if (c < 0x80) {
+                if (dp >= limit) {
+                    throw new BufferOverflowException();
+                }
+                dst[dp++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                if (limit - dp < 2) {
+                    throw new BufferOverflowException();
+                }
+                dst[dp++] = (byte) (0xC0 | (c >> 6));
+                dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(s.charAt(i))) {
+                    if (limit - dp < 4) {
+                        throw new BufferOverflowException();
+                    }
+                    int cp = Character.toCodePoint(c, s.charAt(i++));
+                    dst[dp++] = (byte) (0xF0 | (cp >> 18));
+                    dst[dp++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    dst[dp++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    dst[dp++] = (byte) (0x80 | (cp & 0x3F));
+                }
+                else {
+                    if (dp >= limit) {
+                        throw new BufferOverflowException();
+                    }
+                    dst[dp++] = REPLACEMENT;
+                }
+            }
+            else {
+                if (limit - dp < 3) {
+                    throw new BufferOverflowException();
+                }
+                dst[dp++] = (byte) (0xE0 | (c >> 12));
+                dst[dp++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return dp;
+    }
+
+    /**
+     * Same as {@link #encode(CharSequence, int, int, byte[], int, int)} for buffers without an accessible array.
+     * Uses absolute puts so the position of {@code dst} is left untouched.
+     */
+    static int encode(CharSequence s, int start, int end, ByteBuffer dst, int dp, int limit) {
+        int i = start;
+        while (i < end) {
+            char c = s.charAt(i++);
+            if (c < 0x80) {
+                if (dp >= limit) {
+                    throw new BufferOverflowException();
+                }
+                dst.put(dp++, (byte) c);
+            }
+            else if (c < 0x800) {
+                if (limit - dp < 2) {
+                    throw new BufferOverflowException();
+                }
+                dst.put(dp++, (byte) (0xC0 | (c >> 6)));
+                dst.put(dp++, (byte) (0x80 | (c & 0x3F)));
+            }
+            else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(s.charAt(i))) {
+                    if (limit - dp < 4) {
+                        throw new BufferOverflowException();
+                    }
+                    int cp = Character.toCodePoint(c, s.charAt(i++));
+                    dst.put(dp++, (byte) (0xF0 | (cp >> 18)));
+                    dst.put(dp++, (byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    dst.put(dp++, (byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    dst.put(dp++, (byte) (0x80 | (cp & 0x3F)));
+                }
+                else {
+                    if (dp >= limit) {
+                        throw new BufferOverflowException();
+                    }
+                    dst.put(dp++, REPLACEMENT);
+                }
+            }
+            else {
+                if (limit - dp < 3) {
+                    throw new BufferOverflowException();
+                }
+                dst.put(dp++, (byte) (0xE0 | (c >> 12)));
+                dst.put(dp++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                dst.put(dp++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return dp;
+    }
+
+    /**
+     * @return number of bytes {@link #encode(CharSequence, int, int, byte[], int, int)} writes for the chars
+     */
+    static int length(CharSequence s, int start, int end) {
+        int length = end - start;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                }
+                else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        // two chars, four bytes
+                        length += 2;
+                        i++;
+                    }
+                }
+                else {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return number of chars the valid UTF-8 bytes decode to
+     */
+    static int decodedLength(byte[] bytes, int offset, int length) {
+        int chars = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int b = bytes[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                // supplementary code points decode to a surrogate pair
+                chars += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+/**
+ * How the threads of {@link AsyncSyslogEncoder} wait: consumers for published messages and producers for free slots.
+ */
+public enum WaitStrategy {
+    /**
+     * Spins without giving up the CPU, lowest latency but keeps a core busy per waiting thread.
+     */
+    BUSY_SPIN,
+    /**
+     * Spins for a while and then yields the CPU to other threads.
+     */
+    YIELDING,
+    /**
+     * Spins, yields and then parks for 100 microseconds at a time, low CPU use when idle.
+     */
+    SLEEPING,
+    /**
+     * Waits on a lock condition and is woken when messages are published or slots are released. Waits at most a
+     * millisecond at a time, so a missed wake-up delays a thread by at most that.
+     */
+    BLOCKING
+}
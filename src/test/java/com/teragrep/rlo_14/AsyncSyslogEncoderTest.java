@@ -0,0 +1,189 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncSyslogEncoderTest {
+    /**
+     * Collects the messages of the octet-counted batches
+     */
+    private static final class CollectingSink implements SyslogBatchSink {
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public synchronized void write(SyslogBatchEncoder batch) {
+            byte[] bytes = batch.array();
+            int i = 0;
+            while (i < batch.size()) {
+                int space = i;
+                while (bytes[space] != ' ') {
+                    space++;
+                }
+                int length = Integer.parseInt(new String(bytes, i, space - i, StandardCharsets.US_ASCII));
+                messages.add(new String(bytes, space + 1, length, StandardCharsets.UTF_8));
+                i = space + 1 + length;
+            }
+        }
+
+        private synchronized List<String> messages() {
+            return new ArrayList<>(messages);
+        }
+    }
+
+    private static void produce(AsyncSyslogEncoder encoder, Severity severity, String msg) {
+        long sequence = encoder.claim(severity);
+        Assertions.assertTrue(sequence >= 0);
+        try {
+            encoder.slot(sequence).withFacility(Facility.USER).withHostname("localhost").withMsg(msg);
+        }
+        finally {
+            encoder.publish(sequence);
+        }
+    }
+
+    @Test
+    public void testProducersAndConsumers() throws InterruptedException {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            CollectingSink sink = new CollectingSink();
+            AsyncSyslogEncoder encoder = AsyncSyslogEncoder.builder(sink)
+                .withCapacity(16)
+                .withConsumers(2)
+                .withBatchSize(8)
+                .withWaitStrategy(waitStrategy)
+                .build();
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 3; p++) {
+                int producer = p;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        produce(encoder, Severity.INFORMATIONAL, producer + "-" + i);
+                    }
+                });
+                producers.add(thread);
+                thread.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            encoder.close();
+
+            List<String> messages = sink.messages();
+            Assertions.assertEquals(3000, messages.size(), waitStrategy.name());
+            Set<String> unique = new HashSet<>();
+            for (String message : messages) {
+                Assertions.assertTrue(message.startsWith("<14>1 - localhost - - - - "), message);
+                unique.add(message);
+            }
+            Assertions.assertEquals(3000, unique.size());
+            Assertions.assertEquals(0, encoder.size());
+            Assertions.assertEquals(0, encoder.dropped());
+            Assertions.assertThrows(IllegalStateException.class, () -> encoder.claim(Severity.INFORMATIONAL));
+        }
+    }
+
+    @Test
+    public void testOverflowPolicies() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingSink collecting = new CollectingSink();
+        SyslogBatchSink blocking = batch -> {
+            entered.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            collecting.write(batch);
+        };
+        AsyncSyslogEncoder encoder = AsyncSyslogEncoder.builder(blocking)
+            .withCapacity(4)
+            .withBatchSize(1)
+            .withOverflowPolicy(OverflowPolicy.DROP_LOWER_SEVERITIES)
+            .withDropThreshold(Severity.WARNING)
+            .build();
+
+        // the consumer takes the first message and stays in the sink, then the ring fills up
+        produce(encoder, Severity.INFORMATIONAL, "first");
+        Assertions.assertTrue(entered.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            produce(encoder, Severity.INFORMATIONAL, "queued" + i);
+        }
+        Assertions.assertEquals(4, encoder.size());
+        Assertions.assertEquals(-1, encoder.claim(Severity.DEBUG));
+        Assertions.assertEquals(1, encoder.dropped());
+
+        Thread error = new Thread(() -> produce(encoder, Severity.ERROR, "error"));
+        error.start();
+        error.join(100);
+        Assertions.assertTrue(error.isAlive());
+        release.countDown();
+        error.join();
+        encoder.close();
+
+        List<String> messages = collecting.messages();
+        Assertions.assertEquals(6, messages.size());
+        Assertions.assertTrue(messages.get(5).endsWith(" error"));
+    }
+
+    @Test
+    public void testDropAndInvalidMessages() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncSyslogEncoder encoder = AsyncSyslogEncoder.builder(batch -> {
+                entered.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                throw new IOException("sink failure");
+            })
+            .withCapacity(2)
+            .withBatchSize(1)
+            .withOverflowPolicy(OverflowPolicy.DROP)
+            .build();
+
+        produce(encoder, Severity.INFORMATIONAL, "first");
+        Assertions.assertTrue(entered.await(10, TimeUnit.SECONDS));
+        produce(encoder, Severity.INFORMATIONAL, "second");
+        // claimed but facility left unset
+        long invalid = encoder.claim(Severity.EMERGENCY);
+        encoder.publish(invalid);
+        Assertions.assertEquals(-1, encoder.claim(Severity.EMERGENCY));
+        Assertions.assertEquals(1, encoder.dropped());
+
+        release.countDown();
+        encoder.close();
+        Assertions.assertEquals(1, encoder.invalidMessages());
+        Assertions.assertEquals(2, encoder.failedBatches());
+    }
+}
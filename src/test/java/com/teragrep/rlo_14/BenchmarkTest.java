@@ -20,15 +20,61 @@ package com.teragrep.rlo_14;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 
+/**
+ * Run with {@code -prof gc} to see the allocation per operation, gc.alloc.rate.norm, of the new instance benchmarks
+ * against the reused instance ones.
+ */
 public class BenchmarkTest {
     public static void main(String[] args) throws Exception {
         org.openjdk.jmh.Main.main(args);
     }
 
+    @State(Scope.Thread)
+    public static class ReusedState {
+        private final SyslogMessagePool pool = new SyslogMessagePool(1);
+        private final byte[] buffer = new byte[1024];
+    }
+
+    @State(Scope.Thread)
+    public static class SDNameState {
+        private final SDName origin = SDName.sdID("origin@48577");
+        private final SDName hostname = SDName.paramName("hostname");
+        private final SDName ip = SDName.paramName("ip");
+    }
+
+    @State(Scope.Thread)
+    public static class FrozenSDElementState {
+        private final SDElement origin = new SDElement(
+            "origin@48577", new SDParam("hostname", "localhost"), new SDParam("ip", "127.0.0.1")
+        ).freeze();
+    }
+
+    @State(Scope.Thread)
+    public static class BatchState {
+        private final SyslogMessage[] messages = new SyslogMessage[100];
+        private final SyslogBatchEncoder encoder = new SyslogBatchEncoder();
+        private final SyslogBatchEncoder nonTransparentEncoder = new SyslogBatchEncoder(Framing.NON_TRANSPARENT);
+
+        public BatchState() {
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = new SyslogMessage()
+                    .withTimestamp(1686760620000L + i)
+                    .withAppName("my_app")
+                    .withHostname("localhost")
+                    .withFacility(Facility.USER)
+                    .withSeverity(Severity.INFORMATIONAL)
+                    .withMsg("a syslog message " + i);
+            }
+        }
+    }
+
     @Benchmark
     @Fork(value=1, warmups=1)
     @Warmup(iterations=1, time=5)
@@ -90,4 +136,159 @@ public class BenchmarkTest {
             .withMsg("a syslog message")
             .toRfc5424SyslogMessage();
     }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public String testBenchmarkLongTimestampThreadLocal() {
+        long time = Instant.now().toEpochMilli();
+        return SyslogMessagePool.threadLocal()
+            .withTimestamp(time)
+            .withAppName("my_app")
+            .withHostname("localhost")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg("a syslog message")
+            .toRfc5424SyslogMessage();
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkLongTimestampBytes(ReusedState state) {
+        long time = Instant.now().toEpochMilli();
+        return new SyslogMessage()
+            .withTimestamp(time)
+            .withAppName("my_app")
+            .withHostname("localhost")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg("a syslog message")
+            .toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkLongTimestampBytesPooled(ReusedState state) {
+        long time = System.currentTimeMillis();
+        SyslogMessage message = state.pool.acquire()
+            .withTimestamp(time)
+            .withAppName("my_app")
+            .withHostname("localhost")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg("a syslog message");
+        int length = message.toRfc5424SyslogMessage(state.buffer, 0);
+        state.pool.release(message);
+        return length;
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public byte[] testBenchmarkBatchOctetCountingString(BatchState state) {
+        StringBuilder batch = new StringBuilder();
+        for (SyslogMessage message : state.messages) {
+            String encoded = message.toRfc5424SyslogMessage();
+            batch.append(encoded.getBytes(StandardCharsets.UTF_8).length).append(' ').append(encoded);
+        }
+        return batch.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkBatchOctetCounting(BatchState state) {
+        state.encoder.clear();
+        for (SyslogMessage message : state.messages) {
+            state.encoder.add(message);
+        }
+        return state.encoder.size();
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkBatchNonTransparent(BatchState state) {
+        state.nonTransparentEncoder.clear();
+        for (SyslogMessage message : state.messages) {
+            state.nonTransparentEncoder.add(message);
+        }
+        return state.nonTransparentEncoder.size();
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkSDElementStrings(ReusedState state) {
+        return new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withSDElement(new SDElement("origin@48577", new SDParam("hostname", "localhost"), new SDParam("ip", "127.0.0.1")))
+            .toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkSDElementTokens(ReusedState state, SDNameState names) {
+        return new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withSDElement(SDElement.of(names.origin, SDParam.of(names.hostname, "localhost"), SDParam.of(names.ip, "127.0.0.1")))
+            .toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkSDElementFrozen(ReusedState state, FrozenSDElementState elements) {
+        return new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withSDElement(elements.origin)
+            .toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkSDElementManyParams(ReusedState state) {
+        SDElement audit = new SDElement("audit@48577");
+        for (int i = 0; i < 20; i++) {
+            audit.addSDParam("param", "value");
+        }
+        return new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withSDElement(audit)
+            .toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkSDElementManyParamsCompact(ReusedState state) {
+        SDElement audit = SDElement.compact("audit@48577");
+        for (int i = 0; i < 20; i++) {
+            audit.addSDParam("param", "value");
+        }
+        return new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withSDElement(audit)
+            .toRfc5424SyslogMessage(state.buffer, 0);
+    }
 }
@@ -0,0 +1,114 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+public class ByteEncodingTest {
+    private SyslogMessage message(String msg) {
+        Instant time = Instant.parse("2023-06-14T16:37:00.000Z");
+        return new SyslogMessage()
+            .withTimestamp(time.toEpochMilli())
+            .withAppName("example")
+            .withHostname("localhost")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg(msg)
+            .withSDElement(
+                new SDElement(
+                    "exampleSD@48577",
+                    new SDParam("mySD", "value=\"\\[1]\\\""),
+                    new SDParam("unicode", "äö€😀")
+                )
+            );
+    }
+
+    @Test
+    public void testByteArrayMatchesString() {
+        SyslogMessage message = message("test message äö€ 😀 \uD800 end");
+        byte[] expected = message.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[1024];
+        int written = message.toRfc5424SyslogMessage(out, 7);
+        Assertions.assertEquals(expected.length, written);
+        Assertions.assertArrayEquals(expected, Arrays.copyOfRange(out, 7, 7 + written));
+    }
+
+    @Test
+    public void testHeapByteBufferMatchesString() {
+        SyslogMessage message = message("test message");
+        byte[] expected = message.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        out.position(3);
+        int written = message.toRfc5424SyslogMessage(out);
+        Assertions.assertEquals(expected.length, written);
+        Assertions.assertEquals(3 + written, out.position());
+        byte[] actual = new byte[written];
+        out.flip();
+        out.position(3);
+        out.get(actual);
+        Assertions.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testDirectByteBufferMatchesString() {
+        SyslogMessage message = message("test message äö€ 😀");
+        byte[] expected = message.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocateDirect(1024);
+        int written = message.toRfc5424SyslogMessage(out);
+        Assertions.assertEquals(expected.length, written);
+        Assertions.assertEquals(written, out.position());
+        byte[] actual = new byte[written];
+        out.flip();
+        out.get(actual);
+        Assertions.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testByteArrayTooSmall() {
+        SyslogMessage message = message("test message");
+        int length = message.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8).length;
+        Assertions.assertThrows(
+                BufferOverflowException.class,
+                () -> message.toRfc5424SyslogMessage(new byte[length - 1], 0)
+        );
+        Assertions.assertThrows(
+                BufferOverflowException.class,
+                () -> message.toRfc5424SyslogMessage(new byte[length], 1)
+        );
+        Assertions.assertEquals(length, message.toRfc5424SyslogMessage(new byte[length], 0));
+    }
+
+    @Test
+    public void testByteBufferTooSmall() {
+        SyslogMessage message = message("test message €");
+        int length = message.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8).length;
+        ByteBuffer heap = ByteBuffer.allocate(length - 1);
+        Assertions.assertThrows(BufferOverflowException.class, () -> message.toRfc5424SyslogMessage(heap));
+        Assertions.assertEquals(0, heap.position());
+        ByteBuffer direct = ByteBuffer.allocateDirect(length - 1);
+        Assertions.assertThrows(BufferOverflowException.class, () -> message.toRfc5424SyslogMessage(direct));
+        Assertions.assertEquals(0, direct.position());
+    }
+}
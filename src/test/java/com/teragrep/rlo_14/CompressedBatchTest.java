@@ -0,0 +1,192 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+public class CompressedBatchTest {
+
+    private static SyslogMessage message(String msg) {
+        return new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withHostname("host.example.com")
+                .withAppName("app")
+                .withMsg(msg);
+    }
+
+    private static String string(ByteBuffer view) {
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long bytesIn;
+        long bytesOut;
+        try (CompressedBatchWriter writer = new CompressedBatchWriter(out, 4096, 1, TimeUnit.HOURS, Deflater.DEFAULT_COMPRESSION)) {
+            for (int i = 0; i < 10000; i++) {
+                writer.add(message("message number " + i));
+            }
+            writer.flush();
+            bytesIn = writer.bytesIn();
+            bytesOut = writer.bytesOut();
+        }
+        Assertions.assertEquals(out.size(), bytesOut);
+        Assertions.assertTrue(bytesOut * 4 < bytesIn, bytesIn + " compressed to " + bytesOut);
+
+        try (CompressedBatchReader reader = new CompressedBatchReader(new ByteArrayInputStream(out.toByteArray()))) {
+            for (int i = 0; i < 10000; i++) {
+                ByteBuffer view = reader.next();
+                Assertions.assertTrue(view.isReadOnly());
+                Assertions.assertEquals(message("message number " + i).toRfc5424SyslogMessage(), string(view));
+            }
+            Assertions.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testStoredBlock() throws IOException {
+        byte[] random = new byte[300];
+        new Random(42).nextBytes(random);
+        StringBuilder msg = new StringBuilder();
+        for (byte b : random) {
+            msg.append((char) ('!' + (b & 0x3F)));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompressedBatchWriter writer = new CompressedBatchWriter(out, 4096, 1, TimeUnit.HOURS, Deflater.NO_COMPRESSION)) {
+            writer.add(message(msg.toString()));
+        }
+        byte[] bytes = out.toByteArray();
+        Assertions.assertEquals(CompressedBatchWriter.STORED, bytes[5]);
+
+        CompressedBatchReader reader = new CompressedBatchReader(new ByteArrayInputStream(bytes));
+        Assertions.assertEquals(message(msg.toString()).toRfc5424SyslogMessage(), string(reader.next()));
+        Assertions.assertNull(reader.next());
+    }
+
+    @Test
+    public void testFlushOnDelay() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedBatchWriter writer = new CompressedBatchWriter(out, 4096, 0, TimeUnit.MILLISECONDS, Deflater.BEST_SPEED);
+        writer.add(message("first"));
+        int first = out.size();
+        Assertions.assertTrue(first > CompressedBatchWriter.HEADER_SIZE);
+        writer.add(message("second"));
+        Assertions.assertTrue(out.size() > first);
+
+        CompressedBatchReader reader = new CompressedBatchReader(new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertTrue(string(reader.next()).endsWith(" first"));
+        Assertions.assertTrue(string(reader.next()).endsWith(" second"));
+        Assertions.assertNull(reader.next());
+    }
+
+    @Test
+    public void testInvalidBlock() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompressedBatchWriter writer = new CompressedBatchWriter(out)) {
+            for (int i = 0; i < 100; i++) {
+                writer.add(message("message"));
+            }
+        }
+        byte[] corrupted = out.toByteArray();
+        corrupted[corrupted.length - 5] ^= 0x55;
+        CompressedBatchReader reader = new CompressedBatchReader(new ByteArrayInputStream(corrupted));
+        Assertions.assertThrows(IOException.class, reader::next);
+
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+        CompressedBatchReader truncatedReader = new CompressedBatchReader(new ByteArrayInputStream(truncated));
+        Assertions.assertThrows(IOException.class, truncatedReader::next);
+
+        CompressedBatchReader notBlock = new CompressedBatchReader(
+                new ByteArrayInputStream("<14>1 - - - - - -".getBytes(StandardCharsets.US_ASCII))
+        );
+        Assertions.assertThrows(IOException.class, notBlock::next);
+
+        Assertions.assertNull(new CompressedBatchReader(new ByteArrayInputStream(new byte[0])).next());
+    }
+
+    private static byte[] corrupt(byte[] block, int offset, int value) {
+        byte[] corrupted = Arrays.copyOf(block, block.length);
+        ByteBuffer.wrap(corrupted).putInt(offset, value);
+        return corrupted;
+    }
+
+    @Test
+    public void testCorruptHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompressedBatchWriter writer = new CompressedBatchWriter(out)) {
+            for (int i = 0; i < 100; i++) {
+                writer.add(message("message"));
+            }
+        }
+        byte[] block = out.toByteArray();
+        Assertions.assertEquals(CompressedBatchWriter.DEFLATE, block[5]);
+        int uncompressed = ByteBuffer.wrap(block).getInt(10);
+
+        byte[][] corrupted = {
+                corrupt(block, 10, Integer.MAX_VALUE),
+                corrupt(block, 10, Integer.MAX_VALUE - 1),
+                corrupt(block, 10, CompressedBatchWriter.MAX_BLOCK_SIZE + 1),
+                corrupt(block, 10, -1),
+                corrupt(block, 14, Integer.MAX_VALUE),
+                corrupt(block, 14, uncompressed),
+                corrupt(block, 14, 0),
+                corrupt(block, 6, Integer.MAX_VALUE),
+                corrupt(block, 6, uncompressed)
+        };
+        for (byte[] bytes : corrupted) {
+            CompressedBatchReader reader = new CompressedBatchReader(new ByteArrayInputStream(bytes));
+            Assertions.assertThrows(IOException.class, reader::next);
+        }
+
+        byte[] unknownMethod = Arrays.copyOf(block, block.length);
+        unknownMethod[5] = 7;
+        CompressedBatchReader reader = new CompressedBatchReader(new ByteArrayInputStream(unknownMethod));
+        Assertions.assertThrows(IOException.class, reader::next);
+
+        byte[] stored = Arrays.copyOf(block, block.length);
+        stored[5] = CompressedBatchWriter.STORED;
+        CompressedBatchReader storedReader = new CompressedBatchReader(new ByteArrayInputStream(stored));
+        Assertions.assertThrows(IOException.class, storedReader::next);
+    }
+
+    @Test
+    public void testBlockSizeLimit() {
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> new CompressedBatchWriter(
+                        new ByteArrayOutputStream(), CompressedBatchWriter.MAX_BLOCK_SIZE + 1, 1, TimeUnit.SECONDS, 1
+                )
+        );
+    }
+}
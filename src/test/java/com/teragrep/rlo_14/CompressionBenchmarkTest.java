@@ -0,0 +1,143 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost and compression ratio of {@link CompressedBatchWriter}. One operation is 1 MiB of encoded messages, so the
+ * average time is the cost per MiB. The {@code bytesIn} and {@code bytesOut} counters give the compression ratio.
+ * {@code mvn -Pbenchmark verify -DskipTests -Djmh.includes=CompressionBenchmarkTest}
+ */
+@Fork(value=1, warmups=1)
+@Warmup(iterations=1, time=5)
+@Measurement(iterations=5, time=5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompressionBenchmarkTest {
+    private static final int MEGABYTE = 1024 * 1024;
+
+    @State(Scope.Thread)
+    public static class Messages {
+        @Param({"1", "6", "9"})
+        public int level;
+
+        private SyslogMessage[] messages;
+        private byte[] compressed;
+
+        @Setup
+        public void setup() throws IOException {
+            messages = new SyslogMessage[1000];
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = new SyslogMessage()
+                        .withTimestamp(1686760620123L + i * 17L)
+                        .withFacility(Facility.USER)
+                        .withSeverity(i % 10 == 0 ? Severity.ERROR : Severity.INFORMATIONAL)
+                        .withHostname("host" + (i % 8) + ".example.com")
+                        .withAppName("service")
+                        .withProcId(Integer.toString(4000 + i % 16))
+                        .withSDElement(new SDElement("request@48577", new SDParam("id", Integer.toHexString(i * 7919))))
+                        .withMsg("request " + i + " handled in " + (i * 31 % 997) + " ms for user" + (i % 50));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CompressedBatchWriter writer = new CompressedBatchWriter(out, 64 * 1024, 1, TimeUnit.HOURS, level);
+            compressMegabyte(writer, messages);
+            writer.close();
+            compressed = out.toByteArray();
+        }
+    }
+
+    /**
+     * Bytes before and after compression, summed over the iteration
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Ratio {
+        public long bytesIn;
+        public long bytesOut;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            bytesIn = 0;
+            bytesOut = 0;
+        }
+    }
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private static void compressMegabyte(CompressedBatchWriter writer, SyslogMessage[] messages) throws IOException {
+        int i = 0;
+        while (writer.bytesIn() < MEGABYTE) {
+            writer.add(messages[i++ % messages.length]);
+            if (i % 256 == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    @Benchmark
+    public long compress(Messages messages, Ratio ratio) throws IOException {
+        CompressedBatchWriter writer = new CompressedBatchWriter(DISCARD, 64 * 1024, 1, TimeUnit.HOURS, messages.level);
+        compressMegabyte(writer, messages.messages);
+        writer.close();
+        ratio.bytesIn += writer.bytesIn();
+        ratio.bytesOut += writer.bytesOut();
+        return writer.bytesOut();
+    }
+
+    @Benchmark
+    public int decompress(Messages messages) throws IOException {
+        CompressedBatchReader reader = new CompressedBatchReader(new ByteArrayInputStream(messages.compressed));
+        int count = 0;
+        ByteBuffer message;
+        while ((message = reader.next()) != null) {
+            count += message.remaining();
+        }
+        reader.close();
+        return count;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class EncodeMetricsTest {
+
+    @AfterEach
+    public void unregister() {
+        EncodeMetrics.unregister();
+    }
+
+    @Test
+    public void testCounters() {
+        EncodeCounters counters = new EncodeCounters();
+        EncodeMetrics.register(counters, 1);
+
+        SyslogMessage message = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.ERROR)
+                .withMsg("message");
+        int length = message.toRfc5424SyslogMessage().length(); // 25
+        message.toRfc5424SyslogMessage(new byte[64], 0);
+        message.toRfc5424SyslogMessage(ByteBuffer.allocateDirect(64));
+        new SyslogBatchEncoder().add(message).add(message.withSeverity(Severity.DEBUG));
+
+        Assertions.assertEquals(4, counters.messages(Facility.USER, Severity.ERROR));
+        Assertions.assertEquals(4L * length, counters.size(Facility.USER, Severity.ERROR));
+        Assertions.assertEquals(1, counters.messages(Facility.USER, Severity.DEBUG));
+        Assertions.assertEquals(0, counters.messages(Facility.KERN, Severity.ERROR));
+        Assertions.assertEquals(5, counters.totalMessages());
+        Assertions.assertEquals(5L * length, counters.totalSize());
+        // 16..31
+        Assertions.assertEquals(5, counters.sizeHistogram()[5]);
+        Assertions.assertEquals(5, counters.latencySamples());
+        Assertions.assertTrue(counters.latencyNanos() > 0);
+
+        // not counted when the encoding fails
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SyslogMessage().toRfc5424SyslogMessage());
+        Assertions.assertEquals(5, counters.totalMessages());
+
+        counters.reset();
+        Assertions.assertEquals(0, counters.totalMessages());
+        Assertions.assertEquals(0, counters.latencySamples());
+    }
+
+    @Test
+    public void testSizeInBytes() throws IOException {
+        EncodeCounters counters = new EncodeCounters();
+        EncodeMetrics.register(counters, 1);
+
+        SyslogMessage message = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.ERROR)
+                .withMsg("\u00e4\u20ac\ud83d\ude00");
+        int bytes = message.rfc5424Utf8Length();
+        Assertions.assertNotEquals(bytes, message.rfc5424Length());
+
+        message.toRfc5424SyslogMessage();
+        StringBuilder sb = new StringBuilder("prefix");
+        message.toRfc5424SyslogMessage(sb);
+        ImmutableSyslogMessage.copyOf(message).toRfc5424SyslogMessage();
+        message.toRfc5424SyslogMessage(new byte[64], 0);
+
+        // the same size whether encoded to chars or to bytes
+        Assertions.assertEquals(4, counters.totalMessages());
+        Assertions.assertEquals(4L * bytes, counters.totalSize());
+    }
+
+    @Test
+    public void testSampling() {
+        EncodeCounters counters = new EncodeCounters();
+        EncodeMetrics.register(counters, 100);
+        SyslogMessage message = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withMsg("message");
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < 100000; i++) {
+            message.toRfc5424SyslogMessage(buffer, 0);
+        }
+        Assertions.assertEquals(100000, counters.totalMessages());
+        long samples = counters.latencySamples();
+        Assertions.assertTrue(samples > 500 && samples < 2000, "samples " + samples);
+    }
+
+    @Test
+    public void testUnregistered() {
+        EncodeCounters counters = new EncodeCounters();
+        EncodeMetrics.register(counters);
+        EncodeMetrics.unregister();
+        new SyslogMessage().withFacility(Facility.USER).withSeverity(Severity.ERROR).toRfc5424SyslogMessage();
+        Assertions.assertEquals(0, counters.totalMessages());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EncodeMetrics.register(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EncodeMetrics.register(counters, 0));
+    }
+}
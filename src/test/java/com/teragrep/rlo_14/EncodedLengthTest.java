@@ -0,0 +1,127 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class EncodedLengthTest {
+
+    private static void assertLengths(SyslogMessage message) {
+        String encoded = message.toRfc5424SyslogMessage();
+        Assertions.assertEquals(encoded.length(), message.rfc5424Length(), encoded);
+        Assertions.assertEquals(encoded.getBytes(StandardCharsets.UTF_8).length, message.rfc5424Utf8Length(), encoded);
+    }
+
+    private static SyslogMessage message() {
+        return new SyslogMessage()
+                .withTimestamp(1686760620123L)
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withHostname("host")
+                .withAppName("app");
+    }
+
+    @Test
+    public void testLengths() {
+        assertLengths(message());
+        assertLengths(message().withMsg("plain message"));
+        assertLengths(message().withMsg("ä€😀 multi-byte"));
+        assertLengths(message().withMsg("unpaired \uD83D surrogate \uDE00"));
+        assertLengths(message().withTimestamp("2023-06-14T16:37:00.123+03:00").withMsg("string timestamp"));
+        assertLengths(
+                message()
+                        .withSDElement(new SDElement("escaped@48577", new SDParam("value", "\"quoted\" \\ [bracket] ä")))
+                        .withSDElement(new SDElement("frozen@48577", new SDParam("a", "b")).freeze())
+                        .withMsg("message")
+        );
+        assertLengths(ImmutableSyslogMessage.copyOf(message().withMsg("immutable")));
+
+        SyslogMessageTemplate template = new SyslogMessageTemplate(
+                message().withSDElement(new SDElement("template@48577", new SDParam("ä", "ö")))
+        );
+        assertLengths(template.newMessage().withTimestamp(1686760620123L).withMsg("templated ä"));
+    }
+
+    @Test
+    public void testParsedLengths() {
+        byte[] input = "<14>1 2023-06-14T16:37:00.123Z host app - - [id@48577 k=\"v\\\"ä\"] ä😀"
+                .getBytes(StandardCharsets.UTF_8);
+        SyslogMessage parsed = new Rfc5424Parser().parse(input);
+        Assertions.assertEquals(input.length, parsed.rfc5424Utf8Length());
+        assertLengths(parsed);
+    }
+
+    @Test
+    public void testMissingFields() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SyslogMessage().rfc5424Length());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SyslogMessage().rfc5424Utf8Length());
+    }
+
+    @Test
+    public void testLargeMessageInSmallBatch() {
+        char[] body = new char[100000];
+        Arrays.fill(body, 'ä');
+        SyslogMessage message = message().withMsg(new String(body));
+        SyslogBatchEncoder batch = new SyslogBatchEncoder(64).add(message);
+        byte[] expected = message.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(expected.length + 7, batch.size());
+
+        SyslogSegmentEncoder segments = new SyslogSegmentEncoder();
+        segments.encode(message);
+        Assertions.assertEquals(expected.length, segments.remaining());
+    }
+
+    @Test
+    public void testStringEncodedOnce() {
+        int[] reads = new int[1];
+        String text = "read once";
+        CharSequence counting = new CharSequence() {
+            @Override
+            public int length() {
+                return text.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                reads[0]++;
+                return text.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+                return text;
+            }
+        };
+        String expected = message().withMsg(text).toRfc5424SyslogMessage();
+        SyslogMessage message = message().withMsg(counting);
+        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+        // a measuring pass before the encoding would read every char twice
+        Assertions.assertEquals(text.length(), reads[0]);
+        Assertions.assertEquals(expected, ImmutableSyslogMessage.copyOf(message().withMsg(text)).toRfc5424SyslogMessage());
+    }
+}
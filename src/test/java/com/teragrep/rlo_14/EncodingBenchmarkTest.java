@@ -0,0 +1,203 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Encoding scenarios beyond the plain header and msg of {@link BenchmarkTest}. Run all benchmarks with the
+ * {@code benchmark} profile, which adds the GC profiler and writes the results as JSON:
+ * {@code mvn -Pbenchmark verify -DskipTests -Djmh.includes=EncodingBenchmarkTest}
+ */
+@Fork(value=1, warmups=1)
+@Warmup(iterations=1, time=5)
+@Measurement(iterations=5, time=5)
+public class EncodingBenchmarkTest {
+
+    @State(Scope.Thread)
+    public static class Messages {
+        private final byte[] buffer = new byte[64 * 1024];
+        private SyslogMessage sdHeavy;
+        private SyslogMessage escaping;
+        private SyslogMessage largeBody;
+
+        @Setup
+        public void setup() {
+            sdHeavy = message("a syslog message");
+            for (int e = 0; e < 3; e++) {
+                SDElement sdElement = new SDElement("element" + e + "@48577");
+                for (int p = 0; p < 10; p++) {
+                    sdElement.addSDParam("param" + p, "value of param " + p);
+                }
+                sdHeavy.withSDElement(sdElement);
+            }
+
+            escaping = message("a syslog message").withSDElement(
+                new SDElement(
+                    "escaping@48577",
+                    new SDParam("path", "C:\\Program Files\\rlo_14\\log"),
+                    new SDParam("query", "name=\"value\" AND [range]"),
+                    new SDParam("plain", "nothing to escape here")
+                )
+            );
+
+            char[] body = new char[16 * 1024];
+            Arrays.fill(body, 'x');
+            largeBody = message(new String(body));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TimestampPath {
+        @Param({"long", "instant", "string", "stringSkipParse"})
+        public String path;
+
+        private final long millis = 1686760620123L;
+        private final Instant instant = Instant.ofEpochMilli(millis);
+        private final String string = "2023-06-14T16:37:00.123Z";
+        private final SyslogMessage message = message("a syslog message");
+        private final byte[] buffer = new byte[1024];
+    }
+
+    /**
+     * Immutable message shared by all threads of the benchmark
+     */
+    @State(Scope.Benchmark)
+    public static class Shared {
+        private final ImmutableSyslogMessage message = ImmutableSyslogMessage.copyOf(
+            message("a syslog message").withSDElement(new SDElement("origin", new SDParam("ip", "127.0.0.1")))
+        );
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadBuffer {
+        private final byte[] buffer = new byte[1024];
+    }
+
+    private static SyslogMessage message(String msg) {
+        return new SyslogMessage()
+            .withTimestamp(1686760620123L)
+            .withAppName("my_app")
+            .withHostname("localhost")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg(msg);
+    }
+
+    @Benchmark
+    public String testSDHeavyString(Messages messages) {
+        return messages.sdHeavy.toRfc5424SyslogMessage();
+    }
+
+    @Benchmark
+    public int testSDHeavyBytes(Messages messages) {
+        return messages.sdHeavy.toRfc5424SyslogMessage(messages.buffer, 0);
+    }
+
+    @Benchmark
+    public String testEscapingString(Messages messages) {
+        return messages.escaping.toRfc5424SyslogMessage();
+    }
+
+    @Benchmark
+    public int testEscapingBytes(Messages messages) {
+        return messages.escaping.toRfc5424SyslogMessage(messages.buffer, 0);
+    }
+
+    @Benchmark
+    public String testLargeBodyString(Messages messages) {
+        return messages.largeBody.toRfc5424SyslogMessage();
+    }
+
+    @Benchmark
+    public int testLargeBodyBytes(Messages messages) {
+        return messages.largeBody.toRfc5424SyslogMessage(messages.buffer, 0);
+    }
+
+    @Benchmark
+    public int testTimestampPath(TimestampPath state) {
+        switch (state.path) {
+            case "long":
+                state.message.setTimestamp(state.millis);
+                break;
+            case "instant":
+                state.message.setTimestamp(state.instant);
+                break;
+            case "string":
+                state.message.setTimestamp(state.string, false);
+                break;
+            default:
+                state.message.setTimestamp(state.string, true);
+                break;
+        }
+        return state.message.toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int testThreadLocalMessage1Thread(ThreadBuffer state) {
+        return threadLocalMessage(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int testThreadLocalMessage4Threads(ThreadBuffer state) {
+        return threadLocalMessage(state);
+    }
+
+    private static int threadLocalMessage(ThreadBuffer state) {
+        return SyslogMessagePool.threadLocal()
+            .withTimestamp(System.currentTimeMillis())
+            .withAppName("my_app")
+            .withHostname("localhost")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg("a syslog message")
+            .toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int testSharedImmutable1Thread(Shared shared, ThreadBuffer state) {
+        return shared.message.toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int testSharedImmutable4Threads(Shared shared, ThreadBuffer state) {
+        return shared.message.toRfc5424SyslogMessage(state.buffer, 0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String testSharedImmutableString4Threads(Shared shared) {
+        return shared.message.toRfc5424SyslogMessage();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class FacilityTest {
+    @Test
+    public void testFromNumericalCode() {
+        for (Facility facility : Facility.values()) {
+            Assertions.assertSame(facility, Facility.fromNumericalCode(facility.numericalCode()));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Facility.fromNumericalCode(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Facility.fromNumericalCode(Facility.values().length));
+    }
+
+    @Test
+    public void testFromLabel() {
+        for (Facility facility : Facility.values()) {
+            String label = facility.label();
+            Assertions.assertSame(facility, Facility.fromLabel(label));
+            Assertions.assertSame(facility, Facility.fromLabel(label.toLowerCase()));
+            Assertions.assertSame(facility, Facility.fromLabel(new StringBuilder(label.toLowerCase())));
+            byte[] input = ("<" + label.toLowerCase() + ">").getBytes(StandardCharsets.US_ASCII);
+            Assertions.assertSame(facility, Facility.fromLabel(input, 1, label.length()));
+        }
+        Assertions.assertNull(Facility.fromLabel((String) null));
+        Assertions.assertNull(Facility.fromLabel(""));
+        Assertions.assertNull(Facility.fromLabel(new byte[0], 0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Facility.fromLabel("invalid"));
+        byte[] invalid = "invalid".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Facility.fromLabel(invalid, 0, invalid.length));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ImmutableSyslogMessageTest {
+    private static final String EXPECTED = "<14>1 2023-06-14T16:37:00.123Z localhost example 1234 ID47 "
+        + "[exampleSD@48577 mySD=\"value\"] test message";
+
+    private static ImmutableSyslogMessage build() {
+        return ImmutableSyslogMessage.builder()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withTimestamp(1686760620123L)
+            .withHostname("localhost")
+            .withAppName("example")
+            .withProcId("1234")
+            .withMsgId("ID47")
+            .withSDElement(new SDElement("exampleSD@48577", new SDParam("mySD", "value")))
+            .withMsg("test message")
+            .build();
+    }
+
+    @Test
+    public void testBuilder() {
+        ImmutableSyslogMessage message = build();
+        Assertions.assertEquals(EXPECTED, message.toRfc5424SyslogMessage());
+        Assertions.assertEquals(Priority.of(Facility.USER, Severity.INFORMATIONAL), message.getPriority());
+        Assertions.assertEquals("2023-06-14T16:37:00.123Z", message.getTimestamp());
+        Assertions.assertEquals("localhost", message.getHostname());
+        Assertions.assertEquals("ID47", message.getMsgId());
+        Assertions.assertEquals("test message", message.getMsg());
+        Assertions.assertTrue(message.getSDElements().iterator().next().isFrozen());
+
+        byte[] bytes = new byte[256];
+        int length = message.toRfc5424SyslogMessage(bytes, 0);
+        Assertions.assertEquals(EXPECTED, new String(bytes, 0, length, StandardCharsets.UTF_8));
+        Assertions.assertEquals(
+            EXPECTED.length() + " " + EXPECTED,
+            new String(new SyslogBatchEncoder().add(message).toByteArray(), StandardCharsets.UTF_8)
+        );
+
+        Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> ImmutableSyslogMessage.builder().withFacility(Facility.USER).build()
+        );
+    }
+
+    @Test
+    public void testModificationsThrow() {
+        ImmutableSyslogMessage message = build();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.withHostname("other"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.setMsg("other"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.withTimestamp(0L));
+        Assertions.assertThrows(
+            UnsupportedOperationException.class,
+            () -> message.withTrustedTimestamp("2024-01-01T00:00:00Z")
+        );
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.setTrustedTimestamp("-"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.withPriority(Priority.fromValue(0)));
+        Assertions.assertThrows(
+            UnsupportedOperationException.class,
+            () -> message.withSDElement(new SDElement("origin"))
+        );
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.getSDElements().clear());
+        Assertions.assertThrows(UnsupportedOperationException.class, message::reset);
+        Assertions.assertThrows(
+            UnsupportedOperationException.class,
+            () -> new Rfc5424Parser().parse(EXPECTED.getBytes(StandardCharsets.UTF_8), 0, EXPECTED.length(), message)
+        );
+        Assertions.assertEquals(EXPECTED, message.toRfc5424SyslogMessage());
+    }
+
+    @Test
+    public void testCopyOf() {
+        SDElement sdElement = new SDElement("exampleSD@48577", new SDParam("mySD", "value"));
+        SyslogMessage mutable = new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withTimestamp(1686760620123L)
+            .withHostname("localhost")
+            .withAppName("example")
+            .withProcId("1234")
+            .withMsgId("ID47")
+            .withSDElement(sdElement)
+            .withMsg("test message");
+        ImmutableSyslogMessage copy = ImmutableSyslogMessage.copyOf(mutable);
+        Assertions.assertSame(copy, ImmutableSyslogMessage.copyOf(copy));
+
+        mutable.setHostname("other");
+        sdElement.addSDParam("other", "1");
+        Assertions.assertEquals(EXPECTED, copy.toRfc5424SyslogMessage());
+
+        SyslogMessage parsed = new Rfc5424Parser().parse(EXPECTED.getBytes(StandardCharsets.UTF_8));
+        ImmutableSyslogMessage parsedCopy = ImmutableSyslogMessage.copyOf(parsed);
+        parsed.reset();
+        Assertions.assertEquals(EXPECTED, parsedCopy.toRfc5424SyslogMessage());
+    }
+
+    @Test
+    public void testConcurrentEncoding() throws Exception {
+        ImmutableSyslogMessage message = build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    byte[] bytes = new byte[256];
+                    for (int i = 0; i < 10000; i++) {
+                        int length = message.toRfc5424SyslogMessage(bytes, 0);
+                        if (!EXPECTED.equals(new String(bytes, 0, length, StandardCharsets.UTF_8))
+                                || !EXPECTED.equals(message.toRfc5424SyslogMessage())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assertions.assertTrue(result.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MsgSourceTest {
+    private static final String MSG = "multi-byte ä€😀 msg";
+
+    private static SyslogMessage message() {
+        return new SyslogMessage().withFacility(Facility.USER).withSeverity(Severity.INFORMATIONAL);
+    }
+
+    private static void assertEncodings(SyslogMessage expected, SyslogMessage actual) {
+        String string = expected.toRfc5424SyslogMessage();
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(string, actual.toRfc5424SyslogMessage());
+        Assertions.assertEquals(expected.getMsg(), actual.getMsg());
+
+        byte[] array = new byte[256];
+        int length = actual.toRfc5424SyslogMessage(array, 0);
+        Assertions.assertEquals(new String(bytes, StandardCharsets.UTF_8), new String(array, 0, length, StandardCharsets.UTF_8));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(256);
+        Assertions.assertEquals(bytes.length, actual.toRfc5424SyslogMessage(direct));
+
+        Assertions.assertEquals(string.length(), actual.rfc5424Length());
+        Assertions.assertEquals(bytes.length, actual.rfc5424Utf8Length());
+
+        SyslogDatagramEncoder datagrams = new SyslogDatagramEncoder(bytes.length - 3);
+        datagrams.encode(actual);
+        Assertions.assertTrue(datagrams.isTruncated());
+    }
+
+    @Test
+    public void testCharSequence() {
+        StringBuilder sb = new StringBuilder(MSG);
+        SyslogMessage message = message().withMsg(sb);
+        assertEncodings(message().withMsg(MSG), message);
+
+        // encoded straight from the builder
+        sb.setLength(5);
+        Assertions.assertEquals("<14>1 - - - - - - multi", message.toRfc5424SyslogMessage());
+
+        CharSequence string = "a string";
+        Assertions.assertEquals("a string", message().withMsg(string).getMsg());
+        Assertions.assertNull(message().withMsg((CharSequence) null).getMsg());
+    }
+
+    @Test
+    public void testCharArraySlice() {
+        char[] chars = ("xx" + MSG + "yy").toCharArray();
+        assertEncodings(message().withMsg(MSG), message().withMsg(chars, 2, MSG.length()));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> message().withMsg(chars, 2, chars.length));
+    }
+
+    @Test
+    public void testUtf8Bytes() {
+        byte[] utf8 = ("xx" + MSG + "yy").getBytes(StandardCharsets.UTF_8);
+        int length = MSG.getBytes(StandardCharsets.UTF_8).length;
+        assertEncodings(message().withMsg(MSG), message().withUtf8Msg(utf8, 2, length));
+
+        ByteBuffer heap = ByteBuffer.wrap(utf8, 2, length).slice();
+        assertEncodings(message().withMsg(MSG), message().withUtf8Msg(heap));
+        Assertions.assertEquals(0, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(length);
+        direct.put(utf8, 2, length).flip();
+        SyslogMessage fromDirect = message().withUtf8Msg(direct);
+        Assertions.assertEquals(0, direct.position());
+        assertEncodings(message().withMsg(MSG), fromDirect);
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> message().withUtf8Msg(utf8, 2, utf8.length));
+    }
+
+    @Test
+    public void testReplaced() {
+        SyslogMessage message = message().withUtf8Msg("bytes".getBytes(StandardCharsets.UTF_8), 0, 5);
+        message.withMsg(new StringBuilder("chars"));
+        Assertions.assertEquals("chars", message.getMsg());
+        message.withMsg("string");
+        Assertions.assertEquals("<14>1 - - - - - - string", message.toRfc5424SyslogMessage());
+        message.withMsg(new StringBuilder("chars")).reset();
+        Assertions.assertNull(message.withFacility(Facility.USER).withSeverity(Severity.ERROR).getMsg());
+    }
+
+    @Test
+    public void testLineBreaks() {
+        SyslogBatchEncoder batch = new SyslogBatchEncoder(Framing.NON_TRANSPARENT)
+                .add(message().withMsg(new StringBuilder("a\nb")))
+                .add(message().withUtf8Msg("c\nd".getBytes(StandardCharsets.UTF_8), 0, 3));
+        Assertions.assertEquals(
+                "<14>1 - - - - - - a b\n<14>1 - - - - - - c d\n",
+                new String(batch.toByteArray(), StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    public void testImmutable() {
+        ImmutableSyslogMessage message = ImmutableSyslogMessage.copyOf(message().withMsg(new StringBuilder("copied")));
+        Assertions.assertEquals("copied", message.getMsg());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.withMsg(new StringBuilder()));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.withMsg(new char[1], 0, 1));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.withUtf8Msg(new byte[1], 0, 1));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.withUtf8Msg(ByteBuffer.allocate(1)));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class OctetCountingTest {
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * Completes a frame of {@code message} encoded after {@code reserved} digits, with both buffer kinds.
+     *
+     * @return the frame, or {@code null} if it did not fit in {@code capacity}
+     */
+    private static String frame(String message, int reserved, int capacity) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        int frameStart = 2;
+        int messageStart = frameStart + reserved + 1;
+        byte[] array = new byte[capacity];
+        System.arraycopy(bytes, 0, array, messageStart, bytes.length);
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.put(array);
+
+        int messageEnd = messageStart + bytes.length;
+        int end = OctetCounting.completeFrame(array, frameStart, messageStart, messageEnd, capacity);
+        Assertions.assertEquals(end, OctetCounting.completeFrame(buffer, frameStart, messageStart, messageEnd, capacity));
+        if (end < 0) {
+            return null;
+        }
+        Assertions.assertArrayEquals(array, buffer.array());
+        return new String(array, frameStart, end - frameStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the prefix of {@code frame} with both buffer kinds.
+     */
+    private static int parse(String frame) {
+        byte[] array = frame.getBytes(StandardCharsets.US_ASCII);
+        int length = OctetCounting.parseLength(array, 0, array.length);
+        Assertions.assertEquals(length, OctetCounting.parseLength(ByteBuffer.wrap(array), 0, array.length));
+        return length;
+    }
+
+    @Test
+    public void testDigits() {
+        Assertions.assertEquals(1, OctetCounting.digits(0));
+        Assertions.assertEquals(1, OctetCounting.digits(9));
+        Assertions.assertEquals(2, OctetCounting.digits(10));
+        Assertions.assertEquals(2, OctetCounting.digits(99));
+        Assertions.assertEquals(3, OctetCounting.digits(100));
+        Assertions.assertEquals(9, OctetCounting.digits(999999999));
+        Assertions.assertEquals(OctetCounting.MAX_DIGITS, OctetCounting.digits(1000000000));
+        Assertions.assertEquals(OctetCounting.MAX_DIGITS, OctetCounting.digits(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testCompleteFrame() {
+        Assertions.assertEquals("5 hello", frame("hello", 1, 16));
+        Assertions.assertEquals("0 ", frame("", 1, 16));
+        // fewer digits than reserved moves the message back
+        Assertions.assertEquals("5 hello", frame("hello", 3, 16));
+        Assertions.assertEquals("0 ", frame("", 3, 16));
+        // more digits than reserved moves the message forward
+        String message = repeat('x', 100);
+        Assertions.assertEquals("100 " + message, frame(message, 1, 128));
+        Assertions.assertEquals("100 " + message, frame(message, 3, 128));
+        // digits change at 9/10 and 99/100
+        Assertions.assertEquals("9 " + repeat('x', 9), frame(repeat('x', 9), 2, 32));
+        Assertions.assertEquals("10 " + repeat('x', 10), frame(repeat('x', 10), 1, 32));
+        Assertions.assertEquals("99 " + repeat('x', 99), frame(repeat('x', 99), 3, 128));
+        // multi-byte chars are counted in bytes
+        Assertions.assertEquals("2 ä", frame("ä", 1, 16));
+    }
+
+    @Test
+    public void testCompleteFrameLimit() {
+        String message = repeat('x', 10);
+        // 2 + 1 + 1 + 10 bytes fit only if the message is not moved forward
+        Assertions.assertNull(frame(message, 1, 14));
+        Assertions.assertEquals("10 " + message, frame(message, 1, 15));
+        Assertions.assertEquals("10 " + message, frame(message, 2, 15));
+    }
+
+    @Test
+    public void testParseLength() {
+        Assertions.assertEquals(5, parse("5 hello"));
+        Assertions.assertEquals(0, parse("0 "));
+        Assertions.assertEquals(10, parse("10 " + repeat('x', 10)));
+        // the frame may continue past the message
+        Assertions.assertEquals(1, parse("1 a1 b"));
+    }
+
+    @Test
+    public void testParseLengthInvalid() {
+        Assertions.assertEquals(-1, parse(""));
+        Assertions.assertEquals(-1, parse(" 5 hello"));
+        Assertions.assertEquals(-1, parse("x hello"));
+        Assertions.assertEquals(-1, parse("-5 hello"));
+        Assertions.assertEquals(-1, parse("5hello"));
+        // prefix cut short by the limit
+        Assertions.assertEquals(-1, parse("5"));
+        Assertions.assertEquals(-1, parse("12"));
+        // leading zeros are not valid MSG-LEN
+        Assertions.assertEquals(-1, parse("05 hello"));
+        Assertions.assertEquals(-1, parse("00 "));
+        // message ends past the limit
+        Assertions.assertEquals(-1, parse("6 hello"));
+        Assertions.assertEquals(-1, parse("1 "));
+        // more digits than an int can hold, would overflow
+        Assertions.assertEquals(-1, parse("2147483648 x"));
+        Assertions.assertEquals(-1, parse("99999999999 x"));
+        Assertions.assertEquals(-1, parse("4294967301 hello"));
+    }
+
+    @Test
+    public void testParseLengthOffset() {
+        byte[] frames = "5 hello3 abc".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertEquals(3, OctetCounting.parseLength(frames, 7, frames.length));
+        Assertions.assertEquals(-1, OctetCounting.parseLength(frames, 7, frames.length - 1));
+        Assertions.assertEquals(3, OctetCounting.parseLength(ByteBuffer.wrap(frames), 7, frames.length));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+
+@State(Scope.Thread)
+public class ParserBenchmarkTest {
+    private final Rfc5424Parser parser = new Rfc5424Parser();
+    private final SyslogMessage message = new SyslogMessage();
+    private final byte[] output = new byte[1024];
+    private final byte[] input = (
+        "<14>1 2023-06-14T16:37:00.123Z localhost my_app 1234 ID47 "
+            + "[event_version@48577 major=\"1\" minor=\"0\" version_source=\"source\"]"
+            + "[origin hostname=\"localhost\" ip=\"127.0.0.1\"] a syslog message"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public SyslogMessage testBenchmarkParse() {
+        parser.parse(input, 0, input.length, message);
+        return message;
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public String testBenchmarkParseHostname() {
+        parser.parse(input, 0, input.length, message);
+        return message.getHostname();
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkParseSDElements() {
+        parser.parse(input, 0, input.length, message);
+        return message.getSDElements().size();
+    }
+
+    @Benchmark
+    @Fork(value=1, warmups=1)
+    @Warmup(iterations=1, time=5)
+    @Measurement(iterations=5, time=5)
+    public int testBenchmarkParseAndEncode() {
+        parser.parse(input, 0, input.length, message);
+        return message.toRfc5424SyslogMessage(output, 0);
+    }
+}
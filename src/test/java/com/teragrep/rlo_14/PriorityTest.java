@@ -0,0 +1,89 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class PriorityTest {
+    @Test
+    public void testAllPriorities() {
+        for (Facility facility : Facility.values()) {
+            for (Severity severity : Severity.values()) {
+                int value = facility.numericalCode() * 8 + severity.numericalCode();
+                Priority priority = Priority.of(facility, severity);
+                Assertions.assertSame(priority, facility.priority(severity));
+                Assertions.assertSame(priority, severity.priority(facility));
+                Assertions.assertSame(priority, Priority.fromValue(value));
+                Assertions.assertEquals(value, priority.value());
+                Assertions.assertEquals(facility, priority.facility());
+                Assertions.assertEquals(severity, priority.severity());
+                Assertions.assertEquals("<" + value + ">1 ", priority.prefix());
+
+                byte[] bytes = new byte[8];
+                int length = priority.copyPrefix(bytes, 1);
+                Assertions.assertEquals(priority.prefix(), new String(bytes, 1, length, StandardCharsets.US_ASCII));
+
+                String field = "<" + value + ">";
+                Assertions.assertSame(priority, Priority.parse(field));
+                byte[] input = ("xx" + field + "1").getBytes(StandardCharsets.US_ASCII);
+                Assertions.assertSame(priority, Priority.parse(input, 2, field.length()));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidPriority() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.fromValue(192));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.fromValue(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse("<192>"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse("<>"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse("<1a>"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse("14>"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse("<1234>"));
+        byte[] input = "<14".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(input, 0, input.length));
+    }
+
+    @Test
+    public void testParseOutOfBounds() {
+        byte[] empty = new byte[0];
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(empty, 0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(empty, 0, 4));
+        byte[] truncated = "<14".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(truncated, 0, 4));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(truncated, 1, 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(truncated, 4, 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(truncated, -1, 4));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(truncated, 0, -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(truncated, 2, Integer.MAX_VALUE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Priority.parse(null, 0, 4));
+    }
+
+    @Test
+    public void testMessageWithPriority() {
+        SyslogMessage message = new SyslogMessage().withPriority(Priority.of(Facility.LOCAL7, Severity.DEBUG));
+        Assertions.assertEquals("<191>1 - - - - - -", message.toRfc5424SyslogMessage());
+        Assertions.assertEquals(Facility.LOCAL7, message.getFacility());
+        Assertions.assertEquals(Severity.DEBUG, message.getSeverity());
+        Assertions.assertSame(Priority.fromValue(191), message.getPriority());
+        Assertions.assertNull(new SyslogMessage().withFacility(Facility.USER).getPriority());
+    }
+}
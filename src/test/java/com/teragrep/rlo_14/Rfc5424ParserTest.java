@@ -0,0 +1,169 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+public class Rfc5424ParserTest {
+    private final Rfc5424Parser parser = new Rfc5424Parser();
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testParseHeader() {
+        String input = "<14>1 2023-06-14T16:37:00.123Z localhost example 1234 ID47 - test message äö€";
+        SyslogMessage message = parser.parse(utf8(input));
+        Assertions.assertEquals(Facility.USER, message.getFacility());
+        Assertions.assertEquals(Severity.INFORMATIONAL, message.getSeverity());
+        Assertions.assertEquals("2023-06-14T16:37:00.123Z", message.getTimestamp());
+        Assertions.assertEquals("localhost", message.getHostname());
+        Assertions.assertEquals("example", message.getAppName());
+        Assertions.assertEquals("1234", message.getProcId());
+        Assertions.assertEquals("ID47", message.getMsgId());
+        Assertions.assertTrue(message.getSDElements().isEmpty());
+        Assertions.assertEquals("test message äö€", message.getMsg());
+        Assertions.assertEquals(input, message.toRfc5424SyslogMessage());
+    }
+
+    @Test
+    public void testParseNilValues() {
+        SyslogMessage message = parser.parse(utf8("<191>1 - - - - - -"));
+        Assertions.assertEquals(Facility.LOCAL7, message.getFacility());
+        Assertions.assertEquals(Severity.DEBUG, message.getSeverity());
+        Assertions.assertSame(SyslogMessage.NILVALUE, message.getHostname());
+        Assertions.assertNull(message.getMsg());
+        Assertions.assertEquals("<191>1 - - - - - -", message.toRfc5424SyslogMessage());
+
+        SyslogMessage emptyMsg = parser.parse(utf8("<0>1 - - - - - - "));
+        Assertions.assertEquals("", emptyMsg.getMsg());
+    }
+
+    @Test
+    public void testParseStructuredData() {
+        String input = "<14>1 2023-06-14T16:37:00Z localhost example - - "
+            + "[exampleSD@48577 mySD=\"value=\\\"\\\\[1\\]\\\\\\\"\" other=\"ä\\a\"][origin ip=\"127.0.0.1\"] test message";
+        SyslogMessage message = parser.parse(utf8(input));
+        Iterator<SDElement> elements = message.getSDElements().iterator();
+        SDElement first = elements.next();
+        Assertions.assertEquals("exampleSD@48577", first.getSdID());
+        Assertions.assertEquals(new SDParam("mySD", "value=\"\\[1]\\\""), first.getSdParams().get(0));
+        Assertions.assertEquals(new SDParam("other", "ä\\a"), first.getSdParams().get(1));
+        SDElement second = elements.next();
+        Assertions.assertEquals("origin", second.getSdID());
+        Assertions.assertEquals(new SDParam("ip", "127.0.0.1"), second.getSdParams().get(0));
+        Assertions.assertFalse(elements.hasNext());
+        // the undecoded value keeps the original escaping, the decoded one is escaped again
+        Assertions.assertEquals(
+            input.replace("\\a", "\\\\a"),
+            message.toRfc5424SyslogMessage()
+        );
+    }
+
+    @Test
+    public void testUndecodedFieldsAreCopied() {
+        String input = "<14>1 2023-06-14T16:37:00Z localhost example - - [origin ip=\"127.0.0.1\"] test message €";
+        byte[] bytes = utf8("xx" + input + "yy");
+        SyslogMessage message = new SyslogMessage();
+        parser.parse(bytes, 2, bytes.length - 4, message);
+        byte[] out = new byte[256];
+        int length = message.toRfc5424SyslogMessage(out, 0);
+        Assertions.assertEquals(input, new String(out, 0, length, StandardCharsets.UTF_8));
+
+        // fields replaced after parsing are encoded from the new values
+        message.withHostname("otherhost").withSDElement(new SDElement("meta", new SDParam("sequenceId", "1")));
+        Assertions.assertEquals(
+            "<14>1 2023-06-14T16:37:00Z otherhost example - - [origin ip=\"127.0.0.1\"][meta sequenceId=\"1\"] test message €",
+            message.toRfc5424SyslogMessage()
+        );
+    }
+
+    @Test
+    public void testParseByteBuffers() {
+        String input = "<14>1 2023-06-14T16:37:00Z localhost example - - [origin ip=\"127.0.0.1\"] test message";
+        SyslogMessage message = new SyslogMessage();
+
+        ByteBuffer heap = ByteBuffer.wrap(utf8(input));
+        parser.parse(heap, message);
+        Assertions.assertFalse(heap.hasRemaining());
+        Assertions.assertEquals(input, message.toRfc5424SyslogMessage());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(256);
+        direct.put(utf8(input)).flip();
+        parser.parse(direct, message);
+        Assertions.assertFalse(direct.hasRemaining());
+        direct.clear();
+        direct.put(utf8("overwritten"));
+        Assertions.assertEquals("localhost", message.getHostname());
+        Assertions.assertEquals(input, message.toRfc5424SyslogMessage());
+    }
+
+    @Test
+    public void testReuse() {
+        SyslogMessage message = new SyslogMessage();
+        byte[] first = utf8("<14>1 - host1 - - - [origin ip=\"1\"] first");
+        parser.parse(first, 0, first.length, message);
+        Assertions.assertEquals("host1", message.getHostname());
+        byte[] second = utf8("<11>1 - host2 - - - -");
+        parser.parse(second, 0, second.length, message);
+        Assertions.assertEquals("host2", message.getHostname());
+        Assertions.assertEquals(Severity.ERROR, message.getSeverity());
+        Assertions.assertTrue(message.getSDElements().isEmpty());
+        Assertions.assertNull(message.getMsg());
+        message.reset();
+        Assertions.assertEquals(SyslogMessage.NILVALUE, message.getHostname());
+    }
+
+    @Test
+    public void testInvalidMessages() {
+        String[] inputs = {
+            "",
+            "<14>",
+            "14>1 - - - - - -",
+            "<192>1 - - - - - -",
+            "<14>2 - - - - - -",
+            "<14>1 - - - - -",
+            "<14>1 - - - - - ",
+            "<14>1 - - - - - -msg",
+            "<14>1 -  - - - -",
+            "<14>1 - - - - ThisMsgIdIsLongerThan32Characters -",
+            "<14>1 - - - - - [",
+            "<14>1 - - - - - [notReserved a=\"1\"]",
+            "<14>1 - - - - - [id@1 a=\"1]",
+            "<14>1 - - - - - [id@1 a=1]",
+            "<14>1 - - - - - [id@1 a=\"1\"",
+            "<14>1 - - - - - [id@1 a=\"1\"]x",
+        };
+        for (String input : inputs) {
+            SyslogMessage message = new SyslogMessage();
+            Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> parser.parse(utf8(input), 0, utf8(input).length, message),
+                input
+            );
+            Assertions.assertNull(message.getFacility());
+        }
+    }
+}
@@ -20,7 +20,9 @@ package com.teragrep.rlo_14;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+
 public class SDElementTest {
     @Test
     public void testReservedSDElement() {
@@ -229,4 +231,73 @@ public class SDElementTest {
         );
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testFrozenSDElement() {
+        SDElement mutable = new SDElement("exampleSD@48577", new SDParam("mySD", "value=\"1\""));
+        SDElement frozen = mutable.freeze();
+        Assertions.assertTrue(frozen.isFrozen());
+        Assertions.assertFalse(mutable.isFrozen());
+        Assertions.assertSame(frozen, frozen.freeze());
+        Assertions.assertEquals(mutable, frozen);
+        Assertions.assertEquals(mutable.getSdParams(), frozen.getSdParams());
+
+        // changes to the original or to the returned params do not reach the frozen element
+        mutable.getSdParams().get(0).setParamValue("2");
+        frozen.getSdParams().get(0).setParamValue("3");
+        Assertions.assertEquals("value=\"1\"", frozen.getSdParams().get(0).getParamValue());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.addSDParam("other", "1"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.getSdParams().clear());
+
+        SyslogMessage message = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withSDElement(frozen)
+                .withSDElement(new SDElement("origin", new SDParam("ip", "127.0.0.1")).freeze());
+        String expected = "<14>1 - - - - - [exampleSD@48577 mySD=\"value=\\\"1\\\"\"][origin ip=\"127.0.0.1\"]";
+        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+        byte[] bytes = new byte[128];
+        int length = message.toRfc5424SyslogMessage(bytes, 0);
+        Assertions.assertEquals(expected, new String(bytes, 0, length, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCompactSDElement() {
+        SDElement compact = SDElement.compact("exampleSD@48577");
+        SDElement regular = new SDElement("exampleSD@48577");
+        for (int i = 0; i < 10; i++) {
+            compact.addSDParam("name" + i, "value\"" + i);
+            regular.addSDParam("name" + i, "value\"" + i);
+        }
+        compact.addSDParam(SDParam.of(SDName.paramName("token"), "]"));
+        regular.addSDParam(SDParam.of(SDName.paramName("token"), "]"));
+        compact.getSdParams().add(new SDParam("view", "1"));
+        regular.getSdParams().add(new SDParam("view", "1"));
+
+        Assertions.assertEquals(12, compact.paramCount());
+        Assertions.assertEquals("name3", compact.paramName(3));
+        Assertions.assertEquals("value\"3", compact.paramValue(3));
+        Assertions.assertEquals(regular.getSdParams(), compact.getSdParams());
+        Assertions.assertEquals("token", regular.paramName(10));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> compact.paramName(12));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> compact.addSDParam("in valid", "1"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> compact.getSdParams().remove(0));
+
+        SyslogMessage compactMessage = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withSDElement(compact);
+        SyslogMessage regularMessage = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withSDElement(regular);
+        Assertions.assertEquals(regularMessage.toRfc5424SyslogMessage(), compactMessage.toRfc5424SyslogMessage());
+        Assertions.assertEquals(
+                regularMessage.toRfc5424SyslogMessage(),
+                new SyslogMessage()
+                        .withFacility(Facility.USER)
+                        .withSeverity(Severity.INFORMATIONAL)
+                        .withSDElement(compact.freeze())
+                        .toRfc5424SyslogMessage()
+        );
+    }
+}
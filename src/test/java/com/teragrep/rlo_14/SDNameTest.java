@@ -0,0 +1,73 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class SDNameTest {
+    @Test
+    public void testCanonicalTokens() {
+        SDName sdID = SDName.sdID("exampleSD@48577");
+        Assertions.assertSame(sdID, SDName.sdID("exampleSD@48577"));
+        Assertions.assertTrue(sdID.isSdID());
+        Assertions.assertEquals("exampleSD@48577", sdID.getName());
+
+        SDName paramName = SDName.paramName("mySD");
+        Assertions.assertSame(paramName, SDName.paramName("mySD"));
+        Assertions.assertFalse(paramName.isSdID());
+        Assertions.assertSame(SDName.sdID("origin"), SDName.sdID("origin"));
+    }
+
+    @Test
+    public void testInvalidNames() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SDName.sdID("notReserved"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SDName.sdID(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SDName.paramName("my SD"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SDName.paramName(""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SDElement.of(SDName.paramName("mySD")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SDParam.of(null, "1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SDParam.of(SDName.sdID("origin"), "1"));
+    }
+
+    @Test
+    public void testEncodeFromTokens() {
+        SDName sdID = SDName.sdID("exampleSD@48577");
+        SDName paramName = SDName.paramName("mySD");
+        SDElement fromTokens = SDElement.of(sdID, SDParam.of(paramName, "value=\"1\""));
+        SDElement fromStrings = new SDElement("exampleSD@48577", new SDParam("mySD", "value=\"1\""));
+        Assertions.assertEquals(fromStrings, fromTokens);
+        Assertions.assertEquals(fromStrings.getSdParams(), fromTokens.getSdParams());
+
+        SyslogMessage message = new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withSDElement(fromTokens);
+        Assertions.assertEquals("<14>1 - - - - - [exampleSD@48577 mySD=\"value=\\\"1\\\"\"]", message.toRfc5424SyslogMessage());
+        byte[] bytes = new byte[64];
+        int length = message.toRfc5424SyslogMessage(bytes, 0);
+        Assertions.assertEquals(message.toRfc5424SyslogMessage(), new String(bytes, 0, length, StandardCharsets.UTF_8));
+
+        // a renamed param falls back to the String name
+        fromTokens.getSdParams().get(0).setParamName("other");
+        Assertions.assertEquals("<14>1 - - - - - [exampleSD@48577 other=\"value=\\\"1\\\"\"]", message.toRfc5424SyslogMessage());
+    }
+}
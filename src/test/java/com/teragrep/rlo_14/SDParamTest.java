@@ -3,6 +3,7 @@ package com.teragrep.rlo_14;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 
 /*
@@ -44,6 +45,35 @@ public class SDParamTest {
         Assertions.assertEquals(expected, actual);
     }
 
+    @Test
+    public void testSDParamEscapeManyParams() {
+        SDElement sdElement = new SDElement("exampleSD@48577");
+        StringBuilder expectedSD = new StringBuilder("[exampleSD@48577");
+        for (int i = 0; i < 12; i++) {
+            sdElement.addSDParam("plain" + i, "value " + i);
+            sdElement.addSDParam("escaped" + i, "]" + i + "\\\"");
+            expectedSD.append(" plain").append(i).append("=\"value ").append(i).append('"');
+            expectedSD.append(" escaped").append(i).append("=\"\\]").append(i).append("\\\\\\\"\"");
+        }
+        expectedSD.append(']');
+        SyslogMessage message = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withSDElement(sdElement);
+        String expected = "<14>1 - - - - - " + expectedSD;
+        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+        byte[] bytes = new byte[1024];
+        int length = message.toRfc5424SyslogMessage(bytes, 0);
+        Assertions.assertEquals(expected, new String(bytes, 0, length, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEscapedParamValueWithoutEscapes() {
+        String value = "nothing to escape here";
+        Assertions.assertSame(value, new SyslogMessage().getEscapedParamValue(value));
+        Assertions.assertEquals("a\\]b\\\"c\\\\", new SyslogMessage().getEscapedParamValue("a]b\"c\\"));
+    }
+
     @Test
     public void testEmptySDParamName() {
         Instant time = Instant.parse("2023-06-14T16:37:00.000Z");
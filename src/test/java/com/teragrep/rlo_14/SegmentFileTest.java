@@ -0,0 +1,111 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SegmentFileTest {
+    private static SyslogMessage message(String msg) {
+        return new SyslogMessage()
+            .withTimestamp(1686760620000L)
+            .withHostname("localhost")
+            .withAppName("example")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg(msg);
+    }
+
+    private static List<String> readAll(Path dir) throws IOException {
+        List<String> messages = new ArrayList<>();
+        try (SegmentFileReader reader = new SegmentFileReader(dir)) {
+            ByteBuffer message;
+            while ((message = reader.next()) != null) {
+                Assertions.assertTrue(message.isReadOnly());
+                messages.add(StandardCharsets.UTF_8.decode(message).toString());
+            }
+        }
+        return messages;
+    }
+
+    @Test
+    public void testAppendAndRead(@TempDir Path dir) throws IOException {
+        List<String> expected = new ArrayList<>();
+        try (SegmentFileAppender appender = new SegmentFileAppender(dir, 1024)) {
+            // lengths with fewer and more digits than reserved, rolling over to new segments
+            for (int length : new int[] { 0, 5, 500, 1, 600, 50, 3 }) {
+                char[] msg = new char[length];
+                Arrays.fill(msg, 0, length / 2, 'ä');
+                Arrays.fill(msg, length / 2, length, 'x');
+                SyslogMessage message = message(new String(msg));
+                appender.append(message);
+                expected.add(message.toRfc5424SyslogMessage());
+            }
+            Assertions.assertTrue(appender.sequence() > 0);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> appender.append(message(new String(new char[2000]))));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> appender.append(new SyslogMessage()));
+        }
+        Assertions.assertEquals(expected, readAll(dir));
+    }
+
+    @Test
+    public void testRecovery(@TempDir Path dir) throws IOException {
+        long sequence;
+        int committed;
+        try (SegmentFileAppender appender = new SegmentFileAppender(dir, 4096)) {
+            appender.append(message("first"));
+            appender.append(message("second"));
+            sequence = appender.sequence();
+            committed = appender.committedOffset();
+        }
+        // bytes of an incomplete message after the committed offset
+        try (FileChannel channel = FileChannel.open(dir.resolve(SegmentFileAppender.name(sequence)), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap("99 <14>1 partial".getBytes(StandardCharsets.US_ASCII)), committed);
+        }
+        Assertions.assertEquals(
+            Arrays.asList(message("first").toRfc5424SyslogMessage(), message("second").toRfc5424SyslogMessage()),
+            readAll(dir)
+        );
+
+        try (SegmentFileAppender appender = new SegmentFileAppender(dir, 4096)) {
+            Assertions.assertEquals(sequence, appender.sequence());
+            Assertions.assertEquals(committed, appender.committedOffset());
+            appender.append(message("third"));
+        }
+        Assertions.assertEquals(
+            Arrays.asList(
+                message("first").toRfc5424SyslogMessage(),
+                message("second").toRfc5424SyslogMessage(),
+                message("third").toRfc5424SyslogMessage()
+            ),
+            readAll(dir)
+        );
+    }
+}
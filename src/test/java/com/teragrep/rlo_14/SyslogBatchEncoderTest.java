@@ -0,0 +1,130 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SyslogBatchEncoderTest {
+    private static SyslogMessage message(String msg) {
+        return new SyslogMessage()
+            .withTimestamp(1686760620000L)
+            .withHostname("localhost")
+            .withAppName("example")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg(msg);
+    }
+
+    private static String frame(SyslogMessage message) {
+        String encoded = message.toRfc5424SyslogMessage();
+        return encoded.getBytes(StandardCharsets.UTF_8).length + " " + encoded;
+    }
+
+    @Test
+    public void testOctetCounting() throws IOException {
+        List<SyslogMessage> messages = Arrays.asList(message("first"), message("second äö€"), message(null));
+        SyslogBatchEncoder encoder = new SyslogBatchEncoder().addAll(messages);
+
+        String expected = frame(messages.get(0)) + frame(messages.get(1)) + frame(messages.get(2));
+        Assertions.assertEquals(3, encoder.count());
+        Assertions.assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, encoder.size());
+        Assertions.assertEquals(expected, new String(encoder.toByteArray(), StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.writeTo(out);
+        Assertions.assertEquals(expected, out.toString("UTF-8"));
+        Assertions.assertEquals(expected, StandardCharsets.UTF_8.decode(encoder.toByteBuffer()).toString());
+    }
+
+    @Test
+    public void testLengthDigitsAndGrowth() {
+        // lengths with fewer and more digits than reserved, from a buffer that has to grow several times
+        List<SyslogMessage> messages = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int length : new int[] { 0, 5000, 1, 50, 100000, 3 }) {
+            char[] msg = new char[length];
+            Arrays.fill(msg, 'x');
+            SyslogMessage message = message(new String(msg));
+            messages.add(message);
+            expected.append(frame(message));
+        }
+        SyslogBatchEncoder encoder = new SyslogBatchEncoder(16).addAll(messages);
+        Assertions.assertEquals(expected.toString(), new String(encoder.array(), 0, encoder.size(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testClearAndInvalidMessage() {
+        SyslogBatchEncoder encoder = new SyslogBatchEncoder();
+        encoder.add(message("first"));
+        encoder.clear();
+        Assertions.assertEquals(0, encoder.size());
+        Assertions.assertEquals(0, encoder.count());
+
+        encoder.add(message("second"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> encoder.add(new SyslogMessage()));
+        Assertions.assertEquals(1, encoder.count());
+        Assertions.assertEquals(frame(message("second")), new String(encoder.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testNonTransparent() {
+        SyslogMessage first = message("first\nline\u0000")
+            .withSDElement(new SDElement("origin", new SDParam("ip", "a\n\"b\"")));
+        SyslogMessage second = message("second äö€");
+        SyslogBatchEncoder encoder = new SyslogBatchEncoder(Framing.NON_TRANSPARENT).add(first).add(second);
+
+        String expected = "<14>1 2023-06-14T16:37:00Z localhost example - - [origin ip=\"a \\\"b\\\"\"] first line \n"
+            + second.toRfc5424SyslogMessage() + "\n";
+        Assertions.assertEquals(2, encoder.count());
+        Assertions.assertEquals(expected, new String(encoder.toByteArray(), StandardCharsets.UTF_8));
+        // the message itself is not changed
+        Assertions.assertEquals("first\nline\u0000", first.getMsg());
+    }
+
+    @Test
+    public void testNonTransparentTemplateAndParsed() {
+        SyslogMessageTemplate template = new SyslogMessageTemplate(
+            new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withHostname("host\nname")
+                .withSDElement(new SDElement("origin", new SDParam("ip", "a\nb")))
+        );
+        SyslogBatchEncoder encoder = new SyslogBatchEncoder(16, Framing.NON_TRANSPARENT);
+        encoder.add(template.newMessage().withMsg("x"));
+
+        byte[] raw = "<14>1 - - - - - [origin ip=\"c\nd\"] parsed\nmsg".getBytes(StandardCharsets.UTF_8);
+        SyslogMessage parsed = new SyslogMessage();
+        new Rfc5424Parser().parse(raw, 0, raw.length, parsed);
+        encoder.add(parsed);
+
+        Assertions.assertEquals(
+            "<14>1 - host name - - - [origin ip=\"a b\"] x\n<14>1 - - - - - [origin ip=\"c d\"] parsed msg\n",
+            new String(encoder.toByteArray(), StandardCharsets.UTF_8)
+        );
+    }
+}
@@ -0,0 +1,137 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+public class SyslogDatagramEncoderTest {
+    private static final String HEADER = "<14>1 - host - - - [origin@48577 ip=\"127.0.0.1\"] ";
+
+    private static SyslogMessage message(String msg) {
+        return new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withHostname("host")
+                .withSDElement(new SDElement("origin@48577", new SDParam("ip", "127.0.0.1")))
+                .withMsg(msg);
+    }
+
+    private static String string(ByteBuffer datagram) {
+        return new String(datagram.array(), datagram.position(), datagram.remaining(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFits() {
+        SyslogDatagramEncoder encoder = new SyslogDatagramEncoder(SyslogDatagramEncoder.IPV4_MINIMUM);
+        SyslogMessage message = message("short message");
+        Assertions.assertEquals(message.toRfc5424SyslogMessage(), string(encoder.encode(message)));
+        Assertions.assertFalse(encoder.isTruncated());
+
+        int length = HEADER.length() + 10;
+        encoder = new SyslogDatagramEncoder(length);
+        Assertions.assertEquals(HEADER + "0123456789", string(encoder.encode(message("0123456789"))));
+        Assertions.assertFalse(encoder.isTruncated());
+    }
+
+    @Test
+    public void testTruncated() {
+        SyslogDatagramEncoder encoder = new SyslogDatagramEncoder(HEADER.length() + 5);
+        ByteBuffer datagram = encoder.encode(message("0123456789"));
+        Assertions.assertEquals(HEADER + "01234", string(datagram));
+        Assertions.assertEquals(encoder.getMaxSize(), datagram.remaining());
+        Assertions.assertTrue(encoder.isTruncated());
+
+        // 2 byte sequences, the third does not fit in the last byte
+        Assertions.assertEquals(HEADER + "\u00e4\u00e4", string(encoder.encode(message("\u00e4\u00e4\u00e4\u00e4"))));
+        Assertions.assertTrue(encoder.isTruncated());
+
+        // 4 byte sequence does not fit after two bytes
+        Assertions.assertEquals(HEADER + "ab", string(encoder.encode(message("ab\uD83D\uDE00"))));
+        Assertions.assertTrue(encoder.isTruncated());
+
+        // exactly filled
+        Assertions.assertEquals(HEADER + "a\uD83D\uDE00", string(encoder.encode(message("a\uD83D\uDE00"))));
+        Assertions.assertFalse(encoder.isTruncated());
+    }
+
+    @Test
+    public void testTruncatedParsed() {
+        byte[] input = (HEADER + "a\u20ac\u20ac").getBytes(StandardCharsets.UTF_8);
+        SyslogMessage message = new Rfc5424Parser().parse(input);
+        SyslogDatagramEncoder encoder = new SyslogDatagramEncoder(HEADER.length() + 6);
+        Assertions.assertEquals(HEADER + "a\u20ac", string(encoder.encode(message)));
+        Assertions.assertTrue(encoder.isTruncated());
+
+        encoder = new SyslogDatagramEncoder(input.length);
+        Assertions.assertEquals(HEADER + "a\u20ac\u20ac", string(encoder.encode(message)));
+        Assertions.assertFalse(encoder.isTruncated());
+    }
+
+    @Test
+    public void testHeaderOnly() {
+        // no room for the space before the msg
+        SyslogDatagramEncoder encoder = new SyslogDatagramEncoder(HEADER.length() - 1);
+        Assertions.assertEquals(HEADER.substring(0, HEADER.length() - 1), string(encoder.encode(message("msg"))));
+        Assertions.assertTrue(encoder.isTruncated());
+        // an empty msg loses no bytes
+        Assertions.assertEquals(HEADER.substring(0, HEADER.length() - 1), string(encoder.encode(message(""))));
+        Assertions.assertFalse(encoder.isTruncated());
+
+        // room for the space only, the space is left out when no msg byte fits
+        SyslogDatagramEncoder spaceOnly = new SyslogDatagramEncoder(HEADER.length());
+        Assertions.assertEquals(HEADER.substring(0, HEADER.length() - 1), string(spaceOnly.encode(message("msg"))));
+        Assertions.assertTrue(spaceOnly.isTruncated());
+        Assertions.assertEquals(HEADER, string(spaceOnly.encode(message(""))));
+        Assertions.assertFalse(spaceOnly.isTruncated());
+
+        // the first code point does not fit after the space
+        SyslogDatagramEncoder twoBytes = new SyslogDatagramEncoder(HEADER.length() + 1);
+        Assertions.assertEquals(HEADER.substring(0, HEADER.length() - 1), string(twoBytes.encode(message("\u20ac"))));
+        Assertions.assertTrue(twoBytes.isTruncated());
+        Assertions.assertEquals(HEADER + "a", string(twoBytes.encode(message("a\u20ac"))));
+        Assertions.assertTrue(twoBytes.isTruncated());
+
+        SyslogDatagramEncoder small = new SyslogDatagramEncoder(HEADER.length() - 2);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> small.encode(message("msg")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> small.encode(new SyslogMessage()));
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        try (
+                DatagramChannel receiver = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+                DatagramChannel sender = DatagramChannel.open()
+        ) {
+            SyslogDatagramEncoder encoder = new SyslogDatagramEncoder(HEADER.length() + 3);
+            int sent = encoder.send(message("message"), sender, receiver.getLocalAddress());
+            Assertions.assertEquals(HEADER.length() + 3, sent);
+            ByteBuffer received = ByteBuffer.allocate(1024);
+            receiver.receive(received);
+            received.flip();
+            Assertions.assertEquals(HEADER + "mes", string(received));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SyslogMessagePoolTest {
+    private static SyslogMessage fill(SyslogMessage message) {
+        return message
+            .withTimestamp(Instant.parse("2023-06-14T16:37:00.123Z"))
+            .withAppName("example")
+            .withHostname("localhost")
+            .withProcId("1234")
+            .withMsgId("ID47")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withMsg("test message")
+            .withSDElement(new SDElement("exampleSD@48577", new SDParam("mySD", "1")));
+    }
+
+    @Test
+    public void testReset() {
+        SyslogMessage message = fill(new SyslogMessage());
+        String expected = fill(new SyslogMessage()).toRfc5424SyslogMessage();
+        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+
+        message.reset();
+        Assertions.assertNull(message.getFacility());
+        Assertions.assertNull(message.getSeverity());
+        Assertions.assertEquals(SyslogMessage.NILVALUE, message.getTimestamp());
+        Assertions.assertNull(message.getMsg());
+        Assertions.assertTrue(message.getSDElements().isEmpty());
+        Assertions.assertEquals(
+            "<14>1 - - - - - -",
+            message.withFacility(Facility.USER).withSeverity(Severity.INFORMATIONAL).toRfc5424SyslogMessage()
+        );
+
+        message.reset();
+        Assertions.assertEquals(expected, fill(message).toRfc5424SyslogMessage());
+    }
+
+    @Test
+    public void testResetKeepsGivenSDElements() {
+        Set<SDElement> given = Collections.unmodifiableSet(
+            new LinkedHashSet<>(Collections.singletonList(new SDElement("origin", new SDParam("ip", "127.0.0.1"))))
+        );
+        SyslogMessage message = new SyslogMessage();
+        message.setSDElements(given);
+        message.reset();
+        Assertions.assertEquals(1, given.size());
+        Assertions.assertTrue(message.getSDElements().isEmpty());
+    }
+
+    @Test
+    public void testResetTemplate() {
+        SyslogMessageTemplate template = new SyslogMessageTemplate(fill(new SyslogMessage()));
+        SyslogMessage message = template.newMessage();
+        message.reset();
+        Assertions.assertNull(message.getTemplate());
+        Assertions.assertNull(message.getFacility());
+    }
+
+    @Test
+    public void testPool() {
+        SyslogMessagePool pool = new SyslogMessagePool(1);
+        SyslogMessage first = fill(pool.acquire());
+        SyslogMessage second = fill(pool.acquire());
+        Assertions.assertNotSame(first, second);
+        String expected = first.toRfc5424SyslogMessage();
+
+        pool.release(first);
+        pool.release(second);
+        Assertions.assertEquals(1, pool.size());
+
+        SyslogMessage reused = pool.acquire();
+        Assertions.assertSame(first, reused);
+        Assertions.assertEquals(0, pool.size());
+        Assertions.assertNull(reused.getFacility());
+        Assertions.assertEquals(expected, fill(reused).toRfc5424SyslogMessage());
+    }
+
+    @Test
+    public void testThreadLocal() throws Exception {
+        SyslogMessage message = fill(SyslogMessagePool.threadLocal());
+        SyslogMessage again = SyslogMessagePool.threadLocal();
+        Assertions.assertSame(message, again);
+        Assertions.assertNull(again.getFacility());
+
+        SyslogMessage[] other = new SyslogMessage[1];
+        Thread thread = new Thread(() -> other[0] = SyslogMessagePool.threadLocal());
+        thread.start();
+        thread.join();
+        Assertions.assertNotSame(message, other[0]);
+    }
+
+    @Test
+    public void testUnpooledEncodedByThreads() throws Exception {
+        SyslogMessage message = fill(new SyslogMessage());
+        String expected = message.toRfc5424SyslogMessage();
+        byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    byte[] buffer = new byte[128];
+                    for (int i = 0; i < 10_000; i++) {
+                        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+                        int length = message.toRfc5424SyslogMessage(buffer, 0);
+                        Assertions.assertArrayEquals(expectedBytes, Arrays.copyOf(buffer, length));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class SyslogMessageTemplateTest {
+    @Test
+    public void testTemplate() {
+        SyslogMessageTemplate template = new SyslogMessageTemplate(
+            new SyslogMessage()
+                .withAppName("example")
+                .withHostname("localhost")
+                .withProcId("1234")
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+        );
+        SyslogMessage message = template.newMessage()
+            .withTimestamp("2023-06-14T16:37:00.000Z")
+            .withMsgId("ID47")
+            .withMsg("test message");
+        String expected = "<14>1 2023-06-14T16:37:00Z localhost example 1234 ID47 - test message";
+        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+        Assertions.assertEquals(Facility.USER, message.getFacility());
+        Assertions.assertEquals("localhost", message.getHostname());
+
+        byte[] bytes = new byte[128];
+        int length = message.toRfc5424SyslogMessage(bytes, 0);
+        Assertions.assertEquals(expected, new String(bytes, 0, length, StandardCharsets.UTF_8));
+        ByteBuffer direct = ByteBuffer.allocateDirect(128);
+        Assertions.assertEquals(length, message.toRfc5424SyslogMessage(direct));
+    }
+
+    @Test
+    public void testTemplateStructuredData() {
+        SyslogMessageTemplate template = new SyslogMessageTemplate(
+            new SyslogMessage()
+                .withAppName("example")
+                .withHostname("localhost")
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withSDElement(new SDElement("origin", new SDParam("ip", "127.0.0.1")))
+        );
+        SyslogMessage message = template.newMessage()
+            .withTimestamp("2023-06-14T16:37:00.000Z")
+            .withMsg("test message");
+        Assertions.assertEquals(
+            "<14>1 2023-06-14T16:37:00Z localhost example - - [origin ip=\"127.0.0.1\"] test message",
+            message.toRfc5424SyslogMessage()
+        );
+        Assertions.assertTrue(message.getSDElements().isEmpty());
+
+        message.withSDElement(new SDElement("session@48577", new SDParam("state", "new\"")));
+        Assertions.assertEquals(
+            "<14>1 2023-06-14T16:37:00Z localhost example - - [origin ip=\"127.0.0.1\"][session@48577 state=\"new\\\"\"] test message",
+            message.toRfc5424SyslogMessage()
+        );
+    }
+
+    @Test
+    public void testDetachFromTemplate() {
+        SyslogMessageTemplate template = new SyslogMessageTemplate(
+            new SyslogMessage()
+                .withAppName("example")
+                .withHostname("localhost")
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withSDElement(new SDElement("origin", new SDParam("ip", "127.0.0.1")))
+        );
+        SyslogMessage message = template.newMessage()
+            .withSDElement(new SDElement("session@48577", new SDParam("state", "new")))
+            .withHostname("otherhost");
+        Assertions.assertNull(message.getTemplate());
+        Assertions.assertEquals(2, message.getSDElements().size());
+        Assertions.assertEquals(
+            "<14>1 - otherhost example - - [origin ip=\"127.0.0.1\"][session@48577 state=\"new\"]",
+            message.toRfc5424SyslogMessage()
+        );
+    }
+
+    @Test
+    public void testDetachedElementsAreCopies() {
+        SDElement origin = new SDElement("origin", new SDParam("ip", "127.0.0.1"));
+        SyslogMessageTemplate template = new SyslogMessageTemplate(
+            new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withSDElement(origin)
+        );
+        origin.addSDParam("ip", "10.0.0.1");
+        Assertions.assertTrue(template.getSDElements().get(0).isFrozen());
+
+        SyslogMessage message = template.newMessage().withHostname("otherhost");
+        origin.addSDParam("ip", "10.0.0.2");
+        Assertions.assertEquals(
+            "<14>1 - otherhost - - - [origin ip=\"127.0.0.1\"]",
+            message.toRfc5424SyslogMessage()
+        );
+    }
+
+    @Test
+    public void testTemplateReplacesParsedHeader() {
+        SyslogMessageTemplate template = new SyslogMessageTemplate(
+            new SyslogMessage()
+                .withAppName("example")
+                .withHostname("localhost")
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+        );
+        SyslogMessage message = new Rfc5424Parser()
+            .parse("<14>1 - parsedhost parsedapp 42 ID47 - msg".getBytes(StandardCharsets.UTF_8));
+        message.setTemplate(template);
+        Assertions.assertEquals("localhost", message.getHostname());
+        Assertions.assertEquals("example", message.getAppName());
+        Assertions.assertEquals(SyslogMessage.NILVALUE, message.getProcId());
+        Assertions.assertEquals("ID47", message.getMsgId());
+        String expected = "<14>1 - localhost example - ID47 - msg";
+        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+
+        // detaching keeps the template values
+        message.setTemplate(null);
+        Assertions.assertNull(message.getTemplate());
+        Assertions.assertEquals(expected, message.toRfc5424SyslogMessage());
+        Assertions.assertEquals("localhost", message.getHostname());
+    }
+
+    @Test
+    public void testTemplateMissingFacility() {
+        Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> new SyslogMessageTemplate(new SyslogMessage().withSeverity(Severity.INFORMATIONAL))
+        );
+    }
+}
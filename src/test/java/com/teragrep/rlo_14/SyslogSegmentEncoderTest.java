@@ -0,0 +1,92 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SyslogSegmentEncoderTest {
+    private static SyslogMessage message() {
+        return new SyslogMessage()
+            .withTimestamp(1686760620000L)
+            .withHostname("localhost")
+            .withAppName("example")
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withSDElement(new SDElement("origin", new SDParam("ip", "127.0.0.1")));
+    }
+
+    private static String string(ByteBuffer segment) {
+        return StandardCharsets.UTF_8.decode(segment.duplicate()).toString();
+    }
+
+    @Test
+    public void testSegments() {
+        SyslogMessage message = message().withMsg("message äö€");
+        ByteBuffer[] segments = new SyslogSegmentEncoder().encode(message);
+        Assertions.assertEquals(3, segments.length);
+        Assertions.assertEquals("<14>1 2023-06-14T16:37:00Z localhost example - - ", string(segments[SyslogSegmentEncoder.HEADER]));
+        Assertions.assertEquals("[origin ip=\"127.0.0.1\"]", string(segments[SyslogSegmentEncoder.STRUCTURED_DATA]));
+        Assertions.assertEquals(" message äö€", string(segments[SyslogSegmentEncoder.MSG]));
+
+        message.setMsg(null);
+        segments = new SyslogSegmentEncoder().encode(message);
+        Assertions.assertFalse(segments[SyslogSegmentEncoder.MSG].hasRemaining());
+    }
+
+    @Test
+    public void testBodyIsNotCopied(@TempDir Path dir) throws IOException {
+        ByteBuffer body = ByteBuffer.allocateDirect(64 * 1024);
+        while (body.hasRemaining()) {
+            body.put((byte) ('a' + body.position() % 26));
+        }
+        body.flip();
+        ByteBuffer expectedBody = body.duplicate();
+
+        // an initial capacity too small for even the header
+        SyslogSegmentEncoder encoder = new SyslogSegmentEncoder(8);
+        ByteBuffer[] segments = encoder.encode(message().withMsg("ignored"), body);
+        Assertions.assertSame(body, segments[SyslogSegmentEncoder.MSG]);
+        Assertions.assertEquals("[origin ip=\"127.0.0.1\"] ", string(segments[SyslogSegmentEncoder.STRUCTURED_DATA]));
+
+        Path file = dir.resolve("segments");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long expectedLength = encoder.remaining();
+            long written = 0;
+            while (encoder.remaining() > 0) {
+                written += encoder.writeTo(channel);
+            }
+            Assertions.assertEquals(expectedLength, written);
+        }
+        Assertions.assertFalse(body.hasRemaining());
+
+        byte[] expected = (message().toRfc5424SyslogMessage() + " " + StandardCharsets.UTF_8.decode(expectedBody))
+            .getBytes(StandardCharsets.UTF_8);
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(file));
+    }
+}
@@ -0,0 +1,250 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class SyslogTcpSenderTest {
+    /**
+     * Reads octet-counted frames from the connections accepted on a loopback port, one connection at a time
+     */
+    private static final class LoopbackServer implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private volatile Socket socket;
+
+        private LoopbackServer(int port) throws IOException {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            thread = new Thread(this::accept);
+            thread.start();
+        }
+
+        private void accept() {
+            try {
+                while (true) {
+                    socket = serverSocket.accept();
+                    try (InputStream in = socket.getInputStream()) {
+                        String message;
+                        while ((message = readFrame(in)) != null) {
+                            messages.add(message);
+                        }
+                    }
+                    catch (IOException ignored) {
+                        // connection closed by the test
+                    }
+                }
+            }
+            catch (IOException ignored) {
+                // server closed
+            }
+        }
+
+        private static String readFrame(InputStream in) throws IOException {
+            int length = 0;
+            int b;
+            while ((b = in.read()) != ' ') {
+                if (b < 0) {
+                    return null;
+                }
+                length = length * 10 + b - '0';
+            }
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(length);
+            for (int i = 0; i < length; i++) {
+                frame.write(in.read());
+            }
+            return new String(frame.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private InetSocketAddress address() {
+            return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+        }
+
+        private String take() throws InterruptedException {
+            String message = messages.poll(10, TimeUnit.SECONDS);
+            Assertions.assertNotNull(message);
+            return message;
+        }
+
+        private void disconnect() throws IOException {
+            socket.close();
+        }
+
+        @Override
+        public void close() throws Exception {
+            serverSocket.close();
+            if (socket != null) {
+                socket.close();
+            }
+            thread.join();
+        }
+    }
+
+    private static SyslogMessage message(String msg) {
+        return new SyslogMessage().withFacility(Facility.USER).withSeverity(Severity.INFORMATIONAL).withMsg(msg);
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        try (LoopbackServer server = new LoopbackServer(0)) {
+            try (SyslogTcpSender sender = SyslogTcpSender.builder(server.address()).build()) {
+                SyslogMessage message = new SyslogMessage()
+                        .withFacility(Facility.USER)
+                        .withSeverity(Severity.INFORMATIONAL);
+                for (int i = 0; i < 10000; i++) {
+                    Assertions.assertTrue(sender.send(message.withMsg("message " + i)));
+                }
+                Assertions.assertTrue(sender.flush(10, TimeUnit.SECONDS));
+                Assertions.assertEquals(0, sender.queueDepth());
+                Assertions.assertEquals(0, sender.queuedBytes());
+                for (int i = 0; i < 10000; i++) {
+                    Assertions.assertEquals("<14>1 - - - - - - message " + i, server.take());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentSenders() throws Exception {
+        try (LoopbackServer server = new LoopbackServer(0)) {
+            try (SyslogTcpSender sender = SyslogTcpSender.builder(server.address()).build()) {
+                Thread[] threads = new Thread[4];
+                for (int t = 0; t < threads.length; t++) {
+                    String prefix = "thread " + t + " ";
+                    threads[t] = new Thread(() -> {
+                        for (int i = 0; i < 2500; i++) {
+                            while (!sender.send(message(prefix + i))) {
+                                Thread.yield();
+                            }
+                        }
+                    });
+                    threads[t].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                Assertions.assertTrue(sender.flush(10, TimeUnit.SECONDS));
+
+                // frames are whole and the messages of each thread stay in order
+                int[] next = new int[threads.length];
+                for (int i = 0; i < threads.length * 2500; i++) {
+                    String[] parts = server.take().substring("<14>1 - - - - - - thread ".length()).split(" ");
+                    int thread = Integer.parseInt(parts[0]);
+                    Assertions.assertEquals(next[thread]++, Integer.parseInt(parts[1]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQueuedUntilConnected() throws Exception {
+        int port;
+        try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = unused.getLocalPort();
+        }
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        try (
+                SyslogTcpSender sender = SyslogTcpSender.builder(address)
+                        .withCapacity(200)
+                        .withReconnectDelay(10, TimeUnit.MILLISECONDS)
+                        .build()
+        ) {
+            int queued = 0;
+            while (sender.send(message("queued " + queued))) {
+                queued++;
+            }
+            Assertions.assertEquals(queued, sender.queueDepth());
+            Assertions.assertTrue(sender.queuedBytes() >= 200);
+            Assertions.assertFalse(sender.flush(50, TimeUnit.MILLISECONDS));
+            Assertions.assertTrue(sender.connectionFailures() > 0);
+
+            try (LoopbackServer server = new LoopbackServer(port)) {
+                Assertions.assertTrue(sender.flush(10, TimeUnit.SECONDS));
+                for (int i = 0; i < queued; i++) {
+                    Assertions.assertEquals("<14>1 - - - - - - queued " + i, server.take());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        try (LoopbackServer server = new LoopbackServer(0)) {
+            try (
+                    SyslogTcpSender sender = SyslogTcpSender.builder(server.address())
+                            .withReconnectDelay(10, TimeUnit.MILLISECONDS)
+                            .build()
+            ) {
+                sender.send(message("before"));
+                Assertions.assertEquals("<14>1 - - - - - - before", server.take());
+
+                server.disconnect();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (sender.connectionFailures() == 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                Assertions.assertEquals(1, sender.connectionFailures());
+
+                sender.send(message("after"));
+                Assertions.assertTrue(sender.flush(10, TimeUnit.SECONDS));
+                Assertions.assertEquals("<14>1 - - - - - - after", server.take());
+            }
+        }
+    }
+
+    @Test
+    public void testIOThreadFailure() throws Exception {
+        int port;
+        try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = unused.getLocalPort();
+        }
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        try (
+                SyslogTcpSender sender = SyslogTcpSender.builder(address)
+                        .withReconnectDelay(10, TimeUnit.MILLISECONDS)
+                        .build()
+        ) {
+            Assertions.assertTrue(sender.send(message("queued")));
+            // the next select of the I/O thread fails
+            sender.selector.close();
+
+            IllegalStateException flushFailure = Assertions
+                    .assertThrows(IllegalStateException.class, () -> sender.flush(10, TimeUnit.SECONDS));
+            Assertions.assertNotNull(flushFailure.getCause());
+            IllegalStateException sendFailure = Assertions
+                    .assertThrows(IllegalStateException.class, () -> sender.send(message("rejected")));
+            Assertions.assertSame(flushFailure.getCause(), sendFailure.getCause());
+        }
+    }
+}
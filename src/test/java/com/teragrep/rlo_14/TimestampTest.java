@@ -0,0 +1,151 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TimestampTest {
+    private static String encodedTimestamp(SyslogMessage message) {
+        String encoded = message
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .toRfc5424SyslogMessage();
+        // <14>1 TIMESTAMP - - - - -
+        return encoded.substring(6, encoded.length() - 10);
+    }
+
+    @Test
+    public void testSameSecondDifferentMillis() {
+        long second = Instant.parse("2023-06-14T16:37:00Z").toEpochMilli();
+        for (int millis = 0; millis < 1000; millis++) {
+            SyslogMessage message = new SyslogMessage().withTimestamp(second + millis);
+            String expected = Instant.ofEpochMilli(second + millis).toString();
+            Assertions.assertEquals(expected, encodedTimestamp(message));
+            Assertions.assertEquals(expected, message.getTimestamp());
+        }
+    }
+
+    @Test
+    public void testInstantPrecision() {
+        String[] timestamps = {
+            "2023-06-14T16:37:00Z",
+            "2023-06-14T16:37:00.100Z",
+            "2023-06-14T16:37:00.000100Z",
+            "2023-06-14T16:37:00.000000100Z",
+            "2023-06-14T16:37:00.123456789Z",
+            "1969-12-31T23:59:59.999Z",
+            "0001-01-01T00:00:00.001Z",
+            "+10000-01-01T00:00:00.001Z",
+            "-0001-01-01T00:00:00Z"
+        };
+        for (String timestamp : timestamps) {
+            Instant instant = Instant.parse(timestamp);
+            Assertions.assertEquals(instant.toString(), encodedTimestamp(new SyslogMessage().withTimestamp(instant)));
+            Assertions.assertEquals(instant.toString(), encodedTimestamp(new SyslogMessage().withTimestamp(timestamp)));
+            Assertions.assertEquals(instant.toString(), new SyslogMessage().withTimestamp(instant).getTimestamp());
+        }
+    }
+
+    @Test
+    public void testNegativeEpochMillis() {
+        SyslogMessage message = new SyslogMessage().withTimestamp(-1L);
+        Assertions.assertEquals("1969-12-31T23:59:59.999Z", encodedTimestamp(message));
+    }
+
+    @Test
+    public void testTimestampBytes() {
+        SyslogMessage message = new SyslogMessage()
+            .withFacility(Facility.USER)
+            .withSeverity(Severity.INFORMATIONAL)
+            .withTimestamp(Instant.parse("2023-06-14T16:37:00.123Z"));
+        byte[] bytes = new byte[128];
+        int length = message.toRfc5424SyslogMessage(bytes, 0);
+        Assertions.assertEquals(
+            "<14>1 2023-06-14T16:37:00.123Z - - - - -",
+            new String(bytes, 0, length, StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    public void testConcurrentRendering() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                long start = Instant.parse("2023-06-14T16:37:00Z").toEpochMilli() + thread * 1_500L;
+                futures.add(executor.submit(() -> {
+                    for (long time = start; time < start + 20_000L; time += 7) {
+                        Assertions.assertEquals(
+                            Instant.ofEpochMilli(time).toString(),
+                            encodedTimestamp(new SyslogMessage().withTimestamp(time))
+                        );
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAlternatingSeconds() throws Exception {
+        TimestampRenderer renderer = new TimestampRenderer();
+        long current = Instant.parse("2023-06-14T16:37:00Z").getEpochSecond();
+        long late = current - 1;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long second : new long[] { current, late }) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        int nano = i % 1000 * 1_000_000;
+                        Assertions.assertEquals(
+                            Instant.ofEpochSecond(second, nano).toString(),
+                            renderer.toString(second, nano)
+                        );
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        // both seconds stay cached while the other one is rendered
+        PreEncoded currentPrefix = renderer.prefix(current);
+        PreEncoded latePrefix = renderer.prefix(late);
+        Assertions.assertSame(currentPrefix, renderer.prefix(current));
+        Assertions.assertSame(latePrefix, renderer.prefix(late));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+   Java RFC5424 Syslog Formatter RLO_14
+   Copyright (C) 2023  Suomen Kanuuna Oy
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+
+package com.teragrep.rlo_14;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.time.format.DateTimeParseException;
+
+public class TrustedTest {
+
+    private static boolean assertionsEnabled() {
+        boolean enabled = false;
+        assert enabled = true;
+        return enabled;
+    }
+
+    @Test
+    public void testTrustedMatchesChecked() {
+        SyslogMessage checked = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withTimestamp("2023-06-14T16:37:00.123Z", true)
+                .withSDElement(new SDElement("origin@48577", new SDParam("ip", "127.0.0.1")))
+                .withSDElement(SDElement.compact("meta").addSDParam("sequenceId", "1"))
+                .withMsg("message");
+        SyslogMessage trusted = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withTrustedTimestamp("2023-06-14T16:37:00.123Z")
+                .withSDElement(SDElement.trusted("origin@48577", SDParam.trusted("ip", "127.0.0.1")))
+                .withSDElement(SDElement.trusted("meta").addTrustedSDParam("sequenceId", "1"))
+                .withMsg("message");
+        Assertions.assertEquals(checked.toRfc5424SyslogMessage(), trusted.toRfc5424SyslogMessage());
+        Assertions.assertEquals(
+                "<14>1 2023-06-14T16:37:00.123Z - - - - [origin@48577 ip=\"127.0.0.1\"][meta sequenceId=\"1\"] message",
+                trusted.toRfc5424SyslogMessage()
+        );
+    }
+
+    @Test
+    public void testAssertions() {
+        Assumptions.assumeTrue(assertionsEnabled(), "run with -ea");
+        Assertions.assertThrows(AssertionError.class, () -> SDElement.trusted("unregistered"));
+        Assertions.assertThrows(AssertionError.class, () -> SDElement.trusted("bad=id@48577"));
+        Assertions.assertThrows(AssertionError.class, () -> SDParam.trusted(null, "value"));
+        Assertions.assertThrows(AssertionError.class, () -> SDParam.trusted("bad name", "value"));
+        Assertions.assertThrows(
+                AssertionError.class, () -> SDElement.compact("id@48577").addTrustedSDParam("bad]name", "value")
+        );
+        Assertions.assertThrows(AssertionError.class, () -> new SyslogMessage().withTrustedTimestamp("yesterday"));
+        Assertions.assertThrows(AssertionError.class, () -> new SyslogMessage().withTrustedTimestamp(null));
+
+        // accepted exactly when the checked setter accepts it
+        String[] timestamps = {
+                "2023-06-14T16:37:00Z",
+                "2023-06-14T16:37:00.123+03:00",
+                "2016-12-31T23:59:60Z",
+                "2023-06-14T16:37:00",
+                SyslogMessage.NILVALUE
+        };
+        for (String timestamp : timestamps) {
+            boolean checked;
+            try {
+                new SyslogMessage().withTimestamp(timestamp);
+                checked = true;
+            }
+            catch (DateTimeParseException e) {
+                checked = false;
+            }
+            if (checked) {
+                Assertions.assertDoesNotThrow(() -> new SyslogMessage().withTrustedTimestamp(timestamp));
+            }
+            else {
+                Assertions.assertThrows(AssertionError.class, () -> new SyslogMessage().withTrustedTimestamp(timestamp));
+            }
+        }
+    }
+
+    @Test
+    public void testImmutable() {
+        ImmutableSyslogMessage message = ImmutableSyslogMessage.builder()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withTrustedTimestamp("2023-06-14T16:37:00Z")
+                .build();
+        Assertions.assertEquals("<14>1 2023-06-14T16:37:00Z - - - - -", message.toRfc5424SyslogMessage());
+        Assertions.assertThrows(
+                UnsupportedOperationException.class, () -> message.withTrustedTimestamp("2024-01-01T00:00:00Z")
+        );
+        Assertions.assertEquals("<14>1 2023-06-14T16:37:00Z - - - - -", message.toRfc5424SyslogMessage());
+    }
+
+    @Test
+    public void testFrozen() {
+        SDElement frozen = SDElement.trusted("id@48577").freeze();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.addTrustedSDParam("name", "value"));
+    }
+}